@@ -0,0 +1,109 @@
+package com.zentriq.ai;
+
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import com.zentriq.support.HashingEmbeddingModel;
+
+/**
+ * Compares chunking strategies on a synthetic manual: facts such as "The relief valve on the
+ * korvex dumital pump opens at 42 bar." are scattered between filler sentences, every fact is
+ * asked for with the same top-3 search {@link OllamaService} uses, and a hit means one retrieved
+ * chunk holds the whole fact. Prompt size is the token estimate of the retrieved context.
+ *
+ * This measures retrieval quality rather than time, so it is a plain main rather than a JMH
+ * benchmark. Run with {@code mvn -Pjmh test-compile exec:java -Dexec.mainClass=com.zentriq.ai.ChunkingBenchmark}.
+ */
+public class ChunkingBenchmark {
+
+	private static final int FACTS = 300;
+	private static final int TOP_K = 3;
+
+	private static final String[] SYLLABLES = { "kor", "vex", "du", "mi", "tal", "sen", "ra", "bo", "lin", "qua", "zep",
+		"thi", "mo", "gan", "fe", "rus" };
+
+	private static final String[] FILLER = {
+		"Operators should log every inspection in the maintenance book.",
+		"Spare gaskets are stored in the cabinet next to the control room.",
+		"Wear gloves and eye protection when working near hot surfaces.",
+		"The night shift hands over to the day shift at six in the morning.",
+		"Report unusual noises to the supervisor before restarting the line.",
+		"Cleaning agents must not be mixed in the same container.",
+		"Filters are replaced when the differential gauge enters the red zone.",
+		"Keep the emergency exits clear of pallets and tools at all times.",
+	};
+
+	public static void main(String[] args) {
+		String[] names = names(new Random(7));
+		String manual = buildManual(names, new Random(42));
+		System.out.printf("Manual: %,d characters, ~%,d tokens, %d facts%n%n", manual.length(),
+				TokenCounter.count(manual), FACTS);
+		System.out.printf("%-28s %7s %9s %16s%n", "strategy", "chunks", "hit-rate", "prompt tokens");
+		run("fixed 500 chars", new FixedSizeChunker(500), manual, names);
+		run("boundary 128 tok, 0 overlap", new BoundaryAwareChunker(128, 0), manual, names); // default
+		run("boundary 128 tok, 16 overlap", new BoundaryAwareChunker(128, 16), manual, names);
+		run("boundary 64 tok, 8 overlap", new BoundaryAwareChunker(64, 8), manual, names);
+	}
+
+	private static void run(String name, Chunker chunker, String manual, String[] names) {
+		List<Document> chunks = CustomDocumentLoader.chunckDocument(manual, "manual.txt", chunker);
+		SimpleVectorStore store = SimpleVectorStore.builder(new HashingEmbeddingModel(512)).build();
+		store.add(chunks);
+
+		int hits = 0;
+		long promptTokens = 0;
+		for (int pump = 0; pump < FACTS; pump++) {
+			String question = "At what pressure does the relief valve on the " + names[pump] + " pump open?";
+			List<Document> results = store.similaritySearch(SearchRequest.builder().query(question).topK(TOP_K).build());
+			String fact = "relief valve on the " + names[pump] + " pump opens at " + pressure(pump) + " bar.";
+			if (results.stream().anyMatch(doc -> doc.getText().contains(fact))) {
+				hits++;
+			}
+			for (Document doc : results) {
+				promptTokens += TokenCounter.count(doc.getText());
+			}
+		}
+		System.out.printf("%-28s %7d %8.1f%% %16.1f%n", name, chunks.size(), hits * 100.0 / FACTS,
+				(double) promptTokens / FACTS);
+	}
+
+	private static String buildManual(String[] names, Random random) {
+		StringBuilder manual = new StringBuilder();
+		for (int pump = 0; pump < FACTS; pump++) {
+			for (int i = random.nextInt(4); i >= 0; i--) {
+				manual.append(FILLER[random.nextInt(FILLER.length)]).append(' ');
+			}
+			manual.append("The relief valve on the ").append(names[pump]).append(" pump opens at ")
+				.append(pressure(pump)).append(" bar. ");
+			if (random.nextInt(3) == 0) {
+				manual.append("\n\n");
+			}
+		}
+		return manual.toString();
+	}
+
+	// Two made-up words per pump, so each fact has vocabulary of its own
+	private static String[] names(Random random) {
+		String[] names = new String[FACTS];
+		for (int i = 0; i < FACTS; i++) {
+			names[i] = word(random) + " " + word(random);
+		}
+		return names;
+	}
+
+	private static String word(Random random) {
+		StringBuilder word = new StringBuilder();
+		for (int i = 2 + random.nextInt(2); i > 0; i--) {
+			word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		return word.toString();
+	}
+
+	private static int pressure(int pump) {
+		return 10 + pump * 7 % 90;
+	}
+}
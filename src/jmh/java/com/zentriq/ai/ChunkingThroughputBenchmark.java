@@ -0,0 +1,59 @@
+package com.zentriq.ai;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Time to chunk a large plain-text document with each strategy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChunkingThroughputBenchmark {
+
+	private static final String[] WORDS = { "pump", "valve", "pressure", "the", "seal", "must", "be", "checked",
+		"every", "week", "operator", "maintenance", "schedule", "filter", "replaced", "E-4711", "within", "limits" };
+
+	@Param({ "fixed", "boundary" })
+	String strategy;
+
+	@Param({ "1", "16" })
+	int megabytes;
+
+	private String text;
+	private Chunker chunker;
+
+	@Setup
+	public void setUp() {
+		chunker = "fixed".equals(strategy) ? new FixedSizeChunker(500) : new BoundaryAwareChunker();
+		text = manual(megabytes * 1024 * 1024, new Random(42));
+	}
+
+	@Benchmark
+	public int chunk() {
+		return CustomDocumentLoader.chunckDocument(text, "manual.txt", chunker).size();
+	}
+
+	// Sentences of 6-20 words, paragraphs of 3-8 sentences
+	static String manual(int characters, Random random) {
+		StringBuilder text = new StringBuilder(characters + 256);
+		while (text.length() < characters) {
+			for (int sentence = 3 + random.nextInt(6); sentence > 0; sentence--) {
+				for (int word = 6 + random.nextInt(15); word > 0; word--) {
+					text.append(WORDS[random.nextInt(WORDS.length)]).append(word == 1 ? ". " : " ");
+				}
+			}
+			text.append("\n\n");
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,68 @@
+package com.zentriq.ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parse-and-chunk time for a 96-page PDF (sequential and parallel extraction) and a 100k-row CSV.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DocumentLoaderBenchmark {
+
+	private Path dir;
+	private Path pdf;
+	private Path csv;
+
+	@Setup
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("zentriq-bench-");
+		pdf = CustomDocumentLoaderTests.writePdf(dir.resolve("manual.pdf"), 96);
+		csv = dir.resolve("parts.csv");
+		StringBuilder content = new StringBuilder("part,description,price\n");
+		for (int row = 1; row <= 100_000; row++) {
+			content.append("P-").append(row).append(",\"valve, size ").append(row % 40).append("\",").append(row % 997)
+				.append('\n');
+		}
+		Files.writeString(csv, content);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public int pdfSequential(Blackhole blackhole) throws IOException {
+		return CustomDocumentLoader.streamPdf(pdf, CustomDocumentLoader.DEFAULT_CHUNKER,
+				CustomDocumentLoader.PDF_PAGES_PER_BATCH, blackhole::consume);
+	}
+
+	@Benchmark
+	public int pdfParallel(Blackhole blackhole) throws IOException {
+		return CustomDocumentLoader.streamPdfParallel(pdf, CustomDocumentLoader.DEFAULT_CHUNKER,
+				Runtime.getRuntime().availableProcessors(), CustomDocumentLoader.PDF_PAGES_PER_BATCH, blackhole::consume);
+	}
+
+	@Benchmark
+	public int csv(Blackhole blackhole) throws IOException {
+		return CustomDocumentLoader.streamCsv(csv, CustomDocumentLoader.DEFAULT_CHUNKER, blackhole::consume);
+	}
+}
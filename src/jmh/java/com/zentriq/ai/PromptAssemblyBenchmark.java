@@ -0,0 +1,86 @@
+package com.zentriq.ai;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.ai.document.Document;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.zentriq.support.FakeChatModel;
+import com.zentriq.support.HashingEmbeddingModel;
+import com.zentriq.vectorstore.MappedVectorStore;
+
+/**
+ * Everything {@link OllamaService#ask} does around generation: query embedding (cached), hybrid
+ * retrieval over 5000 chunks, conversation memory, context assembly and prompt building. The chat model answers
+ * instantly and the answer cache never hits, so the timing is our overhead per question.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PromptAssemblyBenchmark {
+
+	private static final int QUESTIONS = 32;
+
+	private Path dir;
+	private MappedVectorStore vectorStore;
+	private OllamaService ollamaService;
+	private String[] questions;
+	private int next;
+
+	@Setup
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("zentriq-bench-");
+		FakeChatModel chatModel = new FakeChatModel(40);
+		CachingEmbeddingModel embeddingModel = new CachingEmbeddingModel(new HashingEmbeddingModel(384), "bench",
+				10_000, null);
+		vectorStore = MappedVectorStore.builder(embeddingModel).directory(dir).build();
+		Bm25Index bm25Index = new Bm25Index();
+		SemanticAnswerCache answerCache = new SemanticAnswerCache(2.0, 500, 1440); // similarity above 1: never hits
+		RagMetrics metrics = new RagMetrics(new SimpleMeterRegistry(), answerCache, embeddingModel);
+		IngestionService ingestionService = new IngestionService(vectorStore, bm25Index, new BoundaryAwareChunker(),
+				metrics, 64, 2, 1);
+		ollamaService = new OllamaService(chatModel, embeddingModel, vectorStore, ingestionService,
+				new ConversationMemory(chatModel, 1024, 4, 256, Runnable::run), answerCache,
+				new HybridRetriever(vectorStore, bm25Index, 3, 10, 0.2, 60), metrics, new ContextAssembler(1024, 0.8));
+
+		String manual = ChunkingThroughputBenchmark.manual(2 * 1024 * 1024, new Random(42));
+		List<Document> chunks = CustomDocumentLoader.chunckDocument(manual, "manual.txt", new BoundaryAwareChunker());
+		ollamaService.indexDocuments(chunks.subList(0, Math.min(5000, chunks.size())));
+
+		Random random = new Random(7);
+		questions = new String[QUESTIONS];
+		for (int i = 0; i < QUESTIONS; i++) {
+			questions[i] = "How often must the " + (random.nextBoolean() ? "pump valve" : "seal filter")
+					+ " be checked for error E-" + (4700 + i) + "?";
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		vectorStore.close();
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public String ask() {
+		return ollamaService.ask(questions[next++ % QUESTIONS]);
+	}
+}
@@ -0,0 +1,100 @@
+package com.zentriq.vectorstore;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Scalar against SIMD kernels, scoring one query against a block of rows as a search scan does.
+ * Time is per row. nomic-embed-text produces 768 dimensions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(SimilarityKernelBenchmark.ROWS)
+public class SimilarityKernelBenchmark {
+
+	static final int ROWS = 1024;
+
+	@Param({ "768" })
+	int dimensions;
+
+	@Param({ "scalar", "simd" })
+	String kernel;
+
+	private VectorKernel implementation;
+	private float[] query;
+	private float[][] rows;
+	private byte[] codes;
+
+	@Setup
+	public void setUp() {
+		implementation = switch (kernel) {
+			case "scalar" -> new ScalarVectorKernel();
+			case "simd" -> new SimdVectorKernel();
+			default -> throw new IllegalArgumentException(kernel);
+		};
+		Random random = new Random(42);
+		query = randomVector(random);
+		rows = new float[ROWS][];
+		for (int i = 0; i < ROWS; i++) {
+			rows[i] = randomVector(random);
+		}
+		codes = new byte[ROWS * dimensions];
+		random.nextBytes(codes);
+	}
+
+	@Benchmark
+	public float dot() {
+		float sum = 0;
+		for (float[] row : rows) {
+			sum += implementation.dot(query, row);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public float cosine() {
+		float sum = 0;
+		for (float[] row : rows) {
+			sum += implementation.cosine(query, row);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public float squaredDistance() {
+		float sum = 0;
+		for (float[] row : rows) {
+			sum += implementation.squaredDistance(query, row);
+		}
+		return sum;
+	}
+
+	// Int8 codes, as scanned by the quantized index
+	@Benchmark
+	public float int8Dot() {
+		float sum = 0;
+		for (int row = 0; row < ROWS; row++) {
+			sum += implementation.dot(query, codes, row * dimensions);
+		}
+		return sum;
+	}
+
+	private float[] randomVector(Random random) {
+		float[] vector = new float[dimensions];
+		for (int i = 0; i < dimensions; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		return vector;
+	}
+}
@@ -0,0 +1,110 @@
+package com.zentriq.vectorstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import com.zentriq.ai.CachingEmbeddingModel;
+import com.zentriq.support.HashingEmbeddingModel;
+
+/**
+ * Top-3 similarity search latency by index size, for Spring's in-memory store and ours
+ * (exact scan on one thread or on all cores, HNSW graph, int8 and binary codes with rescoring).
+ * Queries go through the embedding cache, as at runtime, so the timing is the search itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VectorSearchBenchmark {
+
+	static final int DIMENSIONS = 384;
+	private static final int QUERIES = 64;
+
+	@Param({ "1000", "10000", "100000" })
+	int size;
+
+	@Param({ "simple", "mapped", "parallel", "hnsw", "int8", "binary" })
+	String store;
+
+	private VectorStore vectorStore;
+	private Path dir;
+	private final List<SearchRequest> queries = new ArrayList<>();
+	private int next;
+
+	@Setup
+	public void setUp() throws IOException {
+		EmbeddingModel embeddingModel = new CachingEmbeddingModel(new HashingEmbeddingModel(DIMENSIONS), "bench",
+				QUERIES * 2, null);
+		dir = Files.createTempDirectory("zentriq-bench-");
+		vectorStore = switch (store) {
+			case "simple" -> SimpleVectorStore.builder(embeddingModel).build();
+			case "mapped" -> MappedVectorStore.builder(embeddingModel).directory(dir).build();
+			case "parallel" -> MappedVectorStore.builder(embeddingModel).directory(dir).parallelism(0).build();
+			case "hnsw" -> MappedVectorStore.builder(embeddingModel).directory(dir).hnsw(16, 200, 64).build();
+			case "int8" -> MappedVectorStore.builder(embeddingModel).directory(dir).int8(10).build();
+			case "binary" -> MappedVectorStore.builder(embeddingModel).directory(dir).binary(10).build();
+			default -> throw new IllegalArgumentException(store);
+		};
+		Random random = new Random(42);
+		List<Document> batch = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			batch.add(new Document(sentence(random, 40)));
+			if (batch.size() == 1000) {
+				vectorStore.add(batch);
+				batch = new ArrayList<>();
+			}
+		}
+		if (!batch.isEmpty()) {
+			vectorStore.add(batch);
+		}
+		for (int i = 0; i < QUERIES; i++) {
+			queries.add(SearchRequest.builder().query(sentence(random, 8)).topK(3).build());
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (vectorStore instanceof AutoCloseable closeable) {
+			closeable.close();
+		}
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public List<Document> search() {
+		SearchRequest query = queries.get(next++ % QUERIES);
+		return vectorStore.similaritySearch(query);
+	}
+
+	// Words from a 2000-word vocabulary, so documents overlap like real chunks do
+	static String sentence(Random random, int words) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			text.append("w").append(random.nextInt(2000)).append(' ');
+		}
+		return text.toString();
+	}
+}
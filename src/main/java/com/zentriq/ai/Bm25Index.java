@@ -0,0 +1,372 @@
+package com.zentriq.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process BM25 keyword index over the same chunks as the vector store.
+ *
+ * Embeddings blur exact identifiers ("E-1042", "PN-3342-A"); this index matches them literally.
+ * Chunk ids are mapped to dense doc numbers and each term's postings are two parallel int arrays
+ * (doc numbers, term frequencies) grown by doubling, so the heap cost is a few ints per token
+ * occurrence and no text is kept. Deleting or re-adding a chunk only marks its old doc number
+ * dead; once dead doc numbers outnumber live ones the index is compacted in place.
+ */
+@Component
+public class Bm25Index {
+
+	private static final float K1 = 1.2f;
+	private static final float B = 0.75f;
+
+	// Below this many dead doc numbers compacting is not worth it
+	private static final int MIN_DEAD_TO_COMPACT = 1024;
+
+	public record Hit(String id, float score) {
+	}
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, Integer> termIds = new HashMap<>();
+	private int[][] postingDocs = new int[1024][];
+	private int[][] postingFreqs = new int[1024][];
+	private int[] postingSizes = new int[1024];
+
+	private final List<String> docIds = new ArrayList<>();
+	private final Map<String, Integer> docById = new HashMap<>();
+	private int[] docLengths = new int[1024];
+	private final BitSet deleted = new BitSet();
+	private int deadCount;
+	private long liveLength;
+
+	// Per-thread score accumulator indexed by doc number, zeroed again after each search
+	private final ThreadLocal<float[]> scoreBuffer = ThreadLocal.withInitial(() -> new float[0]);
+
+	public void add(String id, CharSequence text) {
+		put(id, text, true);
+	}
+
+	// Add unless the id is already indexed, e.g. when rebuilding from the store while ingestion adds chunks
+	public void addIfAbsent(String id, CharSequence text) {
+		if (!contains(id)) {
+			put(id, text, false);
+		}
+	}
+
+	public boolean contains(String id) {
+		lock.readLock().lock();
+		try {
+			return docById.containsKey(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void put(String id, CharSequence text, boolean replace) {
+		// Count terms before taking the lock
+		Map<String, int[]> frequencies = new HashMap<>();
+		int[] length = new int[1];
+		tokenize(text, term -> {
+			frequencies.computeIfAbsent(term, t -> new int[1])[0]++;
+			length[0]++;
+		});
+
+		lock.writeLock().lock();
+		try {
+			if (!replace && docById.containsKey(id)) {
+				return;
+			}
+			removeLocked(id);
+			compactIfSparseLocked();
+			int doc = docIds.size();
+			docIds.add(id);
+			docById.put(id, doc);
+			if (doc == docLengths.length) {
+				docLengths = Arrays.copyOf(docLengths, doc * 2);
+			}
+			docLengths[doc] = length[0];
+			liveLength += length[0];
+			for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+				appendPosting(termId(entry.getKey()), doc, entry.getValue()[0]);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(String id) {
+		lock.writeLock().lock();
+		try {
+			removeLocked(id);
+			compactIfSparseLocked();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			termIds.clear();
+			postingDocs = new int[1024][];
+			postingFreqs = new int[1024][];
+			postingSizes = new int[1024];
+			docIds.clear();
+			docById.clear();
+			docLengths = new int[1024];
+			deleted.clear();
+			deadCount = 0;
+			liveLength = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Number of live chunks
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return docById.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Doc numbers in use, live or dead
+	int slots() {
+		lock.readLock().lock();
+		try {
+			return docIds.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The {@code topK} best BM25 matches for the query terms, best first. Chunks sharing no
+	 * term with the query are never returned.
+	 */
+	public List<Hit> search(String query, int topK) {
+		return search(query, topK, id -> true);
+	}
+
+	// Same, returning only chunks whose id is accepted (e.g. those of one file); called under the index lock
+	public List<Hit> search(String query, int topK, Predicate<String> accept) {
+		Set<String> terms = new LinkedHashSet<>();
+		tokenize(query, terms::add);
+
+		lock.readLock().lock();
+		try {
+			int liveDocs = docById.size();
+			if (liveDocs == 0 || terms.isEmpty()) {
+				return List.of();
+			}
+			float averageLength = (float) liveLength / liveDocs;
+			float[] scores = scoreBuffer.get();
+			if (scores.length < docIds.size()) {
+				scores = new float[docIds.size() + (docIds.size() >> 1)];
+				scoreBuffer.set(scores);
+			}
+			int[] touched = new int[64];
+			int touchedCount = 0;
+			for (String term : terms) {
+				Integer termId = termIds.get(term);
+				if (termId == null) {
+					continue;
+				}
+				int[] docs = postingDocs[termId];
+				int[] freqs = postingFreqs[termId];
+				int df = postingSizes[termId];
+				// Document frequency counts dead postings too, a small bias until the next compaction;
+				// capped so a term re-added many times never gets a negative weight
+				int liveDf = Math.min(df, liveDocs);
+				float idf = (float) Math.log(1 + (liveDocs - liveDf + 0.5) / (liveDf + 0.5));
+				for (int i = 0; i < df; i++) {
+					int doc = docs[i];
+					if (deleted.get(doc)) {
+						continue;
+					}
+					float tf = freqs[i];
+					float norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+					if (scores[doc] == 0) {
+						if (touchedCount == touched.length) {
+							touched = Arrays.copyOf(touched, touchedCount * 2);
+						}
+						touched[touchedCount++] = doc;
+					}
+					scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+				}
+			}
+
+			PriorityQueue<Hit> best = new PriorityQueue<>((a, b) -> Float.compare(a.score(), b.score()));
+			for (int i = 0; i < touchedCount; i++) {
+				int doc = touched[i];
+				float score = scores[doc];
+				scores[doc] = 0;
+				if (!accept.test(docIds.get(doc))) {
+					continue;
+				}
+				if (best.size() < topK) {
+					best.add(new Hit(docIds.get(doc), score));
+				} else if (score > best.peek().score()) {
+					best.poll();
+					best.add(new Hit(docIds.get(doc), score));
+				}
+			}
+			List<Hit> hits = new ArrayList<>(best);
+			hits.sort((a, b) -> Float.compare(b.score(), a.score()));
+			return hits;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Lower-cased terms of the text. Runs of letters/digits joined by '-', '_', '.' or '/'
+	 * ("PN-3342-A", "v2.1") are emitted whole and, so partial codes still match, part by part.
+	 */
+	static void tokenize(CharSequence text, Consumer<String> sink) {
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			if (!Character.isLetterOrDigit(text.charAt(i))) {
+				i++;
+				continue;
+			}
+			int start = i;
+			int parts = 0;
+			int partStart = i;
+			while (true) {
+				while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+					i++;
+				}
+				parts++;
+				boolean joined = i + 1 < length && "-_./".indexOf(text.charAt(i)) >= 0
+						&& Character.isLetterOrDigit(text.charAt(i + 1));
+				if (parts > 1 || joined) {
+					sink.accept(lower(text, partStart, i));
+				}
+				if (!joined) {
+					break;
+				}
+				i++;
+				partStart = i;
+			}
+			sink.accept(lower(text, start, i));
+		}
+	}
+
+	private static String lower(CharSequence text, int start, int end) {
+		return text.subSequence(start, end).toString().toLowerCase(Locale.ROOT);
+	}
+
+	private void removeLocked(String id) {
+		Integer doc = docById.remove(id);
+		if (doc != null) {
+			deleted.set(doc);
+			deadCount++;
+			liveLength -= docLengths[doc];
+		}
+	}
+
+	// Renumber the live docs densely and drop dead postings and terms left without any
+	private void compactIfSparseLocked() {
+		if (deadCount < MIN_DEAD_TO_COMPACT || deadCount < docById.size()) {
+			return;
+		}
+		int[] renumbered = new int[docIds.size()];
+		List<String> liveIds = new ArrayList<>(docById.size());
+		int[] liveLengths = new int[Math.max(1024, docById.size() * 2)];
+		for (int doc = 0; doc < docIds.size(); doc++) {
+			if (deleted.get(doc)) {
+				renumbered[doc] = -1;
+				continue;
+			}
+			int live = liveIds.size();
+			renumbered[doc] = live;
+			liveIds.add(docIds.get(doc));
+			liveLengths[live] = docLengths[doc];
+			docById.put(docIds.get(doc), live);
+		}
+
+		int capacity = Math.max(1024, Integer.highestOneBit(Math.max(1, termIds.size())) * 2);
+		int[][] docs = new int[capacity][];
+		int[][] freqs = new int[capacity][];
+		int[] sizes = new int[capacity];
+		Map<String, Integer> liveTerms = new HashMap<>();
+		for (Map.Entry<String, Integer> term : termIds.entrySet()) {
+			int old = term.getValue();
+			int[] termDocs = postingDocs[old];
+			int[] termFreqs = postingFreqs[old];
+			int kept = 0;
+			// Old doc numbers are ascending, and so are the new ones
+			for (int i = 0; i < postingSizes[old]; i++) {
+				int doc = renumbered[termDocs[i]];
+				if (doc >= 0) {
+					termDocs[kept] = doc;
+					termFreqs[kept] = termFreqs[i];
+					kept++;
+				}
+			}
+			if (kept > 0) {
+				int id = liveTerms.size();
+				liveTerms.put(term.getKey(), id);
+				docs[id] = termDocs;
+				freqs[id] = termFreqs;
+				sizes[id] = kept;
+			}
+		}
+
+		termIds.clear();
+		termIds.putAll(liveTerms);
+		postingDocs = docs;
+		postingFreqs = freqs;
+		postingSizes = sizes;
+		docIds.clear();
+		docIds.addAll(liveIds);
+		docLengths = liveLengths;
+		deleted.clear();
+		deadCount = 0;
+	}
+
+	private int termId(String term) {
+		Integer id = termIds.get(term);
+		if (id != null) {
+			return id;
+		}
+		int newId = termIds.size();
+		termIds.put(term, newId);
+		if (newId == postingSizes.length) {
+			postingDocs = Arrays.copyOf(postingDocs, newId * 2);
+			postingFreqs = Arrays.copyOf(postingFreqs, newId * 2);
+			postingSizes = Arrays.copyOf(postingSizes, newId * 2);
+		}
+		postingDocs[newId] = new int[4];
+		postingFreqs[newId] = new int[4];
+		return newId;
+	}
+
+	private void appendPosting(int termId, int doc, int frequency) {
+		int size = postingSizes[termId];
+		if (size == postingDocs[termId].length) {
+			postingDocs[termId] = Arrays.copyOf(postingDocs[termId], size * 2);
+			postingFreqs[termId] = Arrays.copyOf(postingFreqs[termId], size * 2);
+		}
+		postingDocs[termId][size] = doc;
+		postingFreqs[termId][size] = frequency;
+		postingSizes[termId] = size + 1;
+	}
+}
@@ -0,0 +1,122 @@
+package com.zentriq.ai;
+
+/**
+ * Chunks sized in (approximate) model tokens that end on the strongest boundary available:
+ * a paragraph break, else a sentence end, else a space, looking back from the token limit
+ * over at most half of the window. With {@code overlapTokens} set, each chunk after the first
+ * repeats the trailing whole sentences of its predecessor, up to that many tokens. Overlap is off
+ * by default: since cuts already fall on sentence ends, in {@code ChunkingBenchmark} the repeated
+ * sentences mostly crowd other facts out of the top results.
+ */
+public class BoundaryAwareChunker implements Chunker {
+
+	public static final int DEFAULT_MAX_TOKENS = 128;
+	public static final int DEFAULT_OVERLAP_TOKENS = 0;
+
+	private final int maxTokens;
+	private final int overlapTokens;
+
+	public BoundaryAwareChunker() {
+		this(DEFAULT_MAX_TOKENS, DEFAULT_OVERLAP_TOKENS);
+	}
+
+	public BoundaryAwareChunker(int maxTokens, int overlapTokens) {
+		if (maxTokens < 1) {
+			throw new IllegalArgumentException("maxTokens must be positive: " + maxTokens);
+		}
+		this.maxTokens = maxTokens;
+		// More overlap than half a chunk would make the window crawl instead of advance
+		this.overlapTokens = Math.max(0, Math.min(overlapTokens, maxTokens / 2));
+	}
+
+	@Override
+	public int split(CharSequence text, boolean endOfInput, SpanConsumer sink) {
+		int length = text.length();
+		int start = skipWhitespace(text, 0, length);
+		while (start < length) {
+			int limit = TokenCounter.advance(text, start, length, maxTokens);
+			if (limit >= length) {
+				if (!endOfInput) {
+					// The rest may continue in the next append, so the boundary is not known yet
+					return start;
+				}
+				sink.accept(start, trimEnd(text, start, length));
+				return length;
+			}
+			int cut = findCut(text, start, limit);
+			int end = trimEnd(text, start, cut);
+			sink.accept(start, end);
+			int next = overlapTokens > 0 ? overlapStart(text, start, end) : skipWhitespace(text, cut, length);
+			start = next > start ? next : skipWhitespace(text, cut, length);
+		}
+		return length;
+	}
+
+	// Best exclusive end for a chunk in (start, limit], limit < text.length()
+	private static int findCut(CharSequence text, int start, int limit) {
+		int floor = start + (limit - start) / 2;
+		int sentence = -1;
+		int space = -1;
+		for (int p = limit; p > floor; p--) {
+			if (!Character.isWhitespace(text.charAt(p))) {
+				continue;
+			}
+			if (isParagraphBreak(text, start, p)) {
+				return p;
+			}
+			if (sentence < 0 && isSentenceEnd(text, start, p)) {
+				sentence = p;
+			}
+			if (space < 0) {
+				space = p;
+			}
+		}
+		return sentence >= 0 ? sentence : space >= 0 ? space : limit;
+	}
+
+	// Trailing whole sentences of [start, end) that fit the overlap budget, else trailing words
+	private int overlapStart(CharSequence text, int start, int end) {
+		int from = TokenCounter.retreat(text, end, start + 1, overlapTokens);
+		for (int p = from; p < end; p++) {
+			if (Character.isWhitespace(text.charAt(p)) && isSentenceEnd(text, start, p)) {
+				return skipWhitespace(text, p, end);
+			}
+		}
+		return from;
+	}
+
+	// A newline preceded, on its line, only by blanks and another newline
+	private static boolean isParagraphBreak(CharSequence text, int start, int p) {
+		if (text.charAt(p) != '\n') {
+			return false;
+		}
+		int q = p - 1;
+		while (q > start && (text.charAt(q) == ' ' || text.charAt(q) == '\t' || text.charAt(q) == '\r')) {
+			q--;
+		}
+		return q > start && text.charAt(q) == '\n';
+	}
+
+	// Whitespace at p directly after ., ! or ?, optionally followed by a closing quote or bracket
+	private static boolean isSentenceEnd(CharSequence text, int start, int p) {
+		int q = p - 1;
+		if (q > start && "\"')]".indexOf(text.charAt(q)) >= 0) {
+			q--;
+		}
+		return q > start && ".!?".indexOf(text.charAt(q)) >= 0;
+	}
+
+	private static int skipWhitespace(CharSequence text, int from, int to) {
+		while (from < to && Character.isWhitespace(text.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	private static int trimEnd(CharSequence text, int start, int end) {
+		while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+		return end;
+	}
+}
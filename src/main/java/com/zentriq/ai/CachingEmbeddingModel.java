@@ -0,0 +1,382 @@
+package com.zentriq.ai;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} decorator that remembers embeddings by a SHA-256 of model name plus text.
+ *
+ * A bounded in-memory LRU answers repeated queries; an optional append-only file, also bounded,
+ * keeps the most recently used embeddings across restarts so re-attached documents do not go
+ * back to Ollama. Only the texts missing from both tiers are sent to the delegate, in a single
+ * request. Every returned array is a copy the caller may change.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(CachingEmbeddingModel.class);
+
+	public static final int DEFAULT_MAX_DISK_ENTRIES = 100_000;
+
+	private final EmbeddingModel delegate;
+	private final String modelName;
+	private final Map<Key, float[]> memory;
+	private final DiskTier disk;
+
+	private final AtomicLong memoryHits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	// First 128 bits of the SHA-256 digest; collisions are not a practical concern at that width
+	private record Key(long high, long low) {
+	}
+
+	public CachingEmbeddingModel(EmbeddingModel delegate, String modelName, int maxEntries, Path diskFile) {
+		this(delegate, modelName, maxEntries, diskFile, DEFAULT_MAX_DISK_ENTRIES);
+	}
+
+	/**
+	 * @param maxEntries capacity of the in-memory tier
+	 * @param diskFile file for the persistent tier, or {@code null} for memory only
+	 * @param maxDiskEntries capacity of the persistent tier
+	 */
+	public CachingEmbeddingModel(EmbeddingModel delegate, String modelName, int maxEntries, Path diskFile,
+			int maxDiskEntries) {
+		this.delegate = delegate;
+		this.modelName = modelName;
+		this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, float[]> eldest) {
+				return size() > maxEntries;
+			}
+		};
+		this.disk = diskFile == null ? null : new DiskTier(diskFile, maxDiskEntries);
+	}
+
+	@Override
+	public EmbeddingResponse call(EmbeddingRequest request) {
+		String model = request.getOptions() != null && request.getOptions().getModel() != null
+				? request.getOptions().getModel() : modelName;
+		List<String> inputs = request.getInstructions();
+		float[][] results = new float[inputs.size()][];
+		// Distinct missing texts, each with the positions it fills
+		Map<String, List<Integer>> missing = new LinkedHashMap<>();
+		Map<String, Key> missingKeys = new HashMap<>();
+
+		for (int i = 0; i < inputs.size(); i++) {
+			String text = inputs.get(i);
+			Key key = key(model, text);
+			float[] cached = lookup(key);
+			if (cached != null) {
+				results[i] = cached;
+			} else {
+				missing.computeIfAbsent(text, t -> new ArrayList<>()).add(i);
+				missingKeys.put(text, key);
+			}
+		}
+
+		EmbeddingResponse delegateResponse = null;
+		if (!missing.isEmpty()) {
+			misses.addAndGet(missing.size());
+			List<String> texts = new ArrayList<>(missing.keySet());
+			delegateResponse = delegate.call(new EmbeddingRequest(texts, request.getOptions()));
+			for (int i = 0; i < texts.size(); i++) {
+				float[] embedding = delegateResponse.getResults().get(i).getOutput();
+				store(missingKeys.get(texts.get(i)), embedding);
+				List<Integer> positions = missing.get(texts.get(i));
+				results[positions.get(0)] = embedding;
+				for (int position : positions.subList(1, positions.size())) {
+					results[position] = embedding.clone();
+				}
+			}
+		}
+
+		List<Embedding> embeddings = new ArrayList<>(results.length);
+		for (int i = 0; i < results.length; i++) {
+			embeddings.add(new Embedding(results[i], i));
+		}
+		return delegateResponse != null
+				? new EmbeddingResponse(embeddings, delegateResponse.getMetadata())
+				: new EmbeddingResponse(embeddings);
+	}
+
+	@Override
+	public float[] embed(Document document) {
+		return embed(document.getText());
+	}
+
+	@Override
+	public int dimensions() {
+		return delegate.dimensions();
+	}
+
+	public long getMemoryHits() {
+		return memoryHits.get();
+	}
+
+	public long getDiskHits() {
+		return diskHits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	// Closes the cache file; later lookups only use the memory tier
+	@Override
+	public void close() {
+		if (disk != null) {
+			disk.close();
+		}
+	}
+
+	private float[] lookup(Key key) {
+		float[] cached;
+		synchronized (memory) {
+			cached = memory.get(key);
+		}
+		if (cached != null) {
+			memoryHits.incrementAndGet();
+			return cached.clone();
+		}
+		if (disk != null) {
+			cached = disk.get(key);
+			if (cached != null) {
+				diskHits.incrementAndGet();
+				synchronized (memory) {
+					memory.put(key, cached);
+				}
+				return cached.clone();
+			}
+		}
+		return null;
+	}
+
+	// Keeps a copy, so callers changing the returned array cannot corrupt the cache
+	private void store(Key key, float[] embedding) {
+		synchronized (memory) {
+			memory.put(key, embedding.clone());
+		}
+		if (disk != null) {
+			disk.put(key, embedding);
+		}
+	}
+
+	private static Key key(String model, String text) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(model.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			ByteBuffer hash = ByteBuffer.wrap(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+			return new Key(hash.getLong(), hash.getLong());
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 not available", ex);
+		}
+	}
+
+	/**
+	 * Append-only file of {key high, key low, dimensions, floats...} records with an in-memory
+	 * offset index in least recently used order. The file is created on the first write; a torn
+	 * trailing record is dropped. Beyond {@code maxEntries} the least recently used entry is
+	 * dropped from the index, and once dropped records take up half the file the live ones are
+	 * copied to a new file, so the file stays under twice the size of {@code maxEntries} records.
+	 */
+	private static final class DiskTier {
+
+		private static final int RECORD_HEADER = Long.BYTES * 2 + Integer.BYTES;
+
+		private final Path file;
+		private final int maxEntries;
+		private final Map<Key, Long> offsets = new LinkedHashMap<>(16, 0.75f, true);
+		// Records in the file, including those no longer indexed
+		private int records;
+		private FileChannel channel;
+		private boolean closed;
+
+		DiskTier(Path file, int maxEntries) {
+			if (maxEntries < 1) {
+				throw new IllegalArgumentException("maxDiskEntries must be positive: " + maxEntries);
+			}
+			this.file = file;
+			this.maxEntries = maxEntries;
+			if (Files.exists(file)) {
+				try {
+					open();
+					load();
+				} catch (IOException ex) {
+					logger.warn("Ignoring unreadable embedding cache {}: {}", file, ex.getMessage());
+					offsets.clear();
+				}
+			}
+		}
+
+		synchronized float[] get(Key key) {
+			Long offset = offsets.get(key);
+			if (offset == null) {
+				return null;
+			}
+			try {
+				ByteBuffer header = read(offset + Long.BYTES * 2, Integer.BYTES);
+				int dimensions = header.getInt();
+				ByteBuffer body = read(offset + RECORD_HEADER, dimensions * Float.BYTES);
+				float[] embedding = new float[dimensions];
+				body.asFloatBuffer().get(embedding);
+				return embedding;
+			} catch (IOException ex) {
+				logger.warn("Embedding cache read failed: {}", ex.getMessage());
+				return null;
+			}
+		}
+
+		synchronized void put(Key key, float[] embedding) {
+			if (closed || offsets.containsKey(key)) {
+				return;
+			}
+			try {
+				if (channel == null) {
+					Files.createDirectories(file.toAbsolutePath().getParent());
+					open();
+				}
+				ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + embedding.length * Float.BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN);
+				record.putLong(key.high()).putLong(key.low()).putInt(embedding.length);
+				record.asFloatBuffer().put(embedding);
+				record.position(0);
+				long offset = channel.size();
+				long position = offset;
+				while (record.hasRemaining()) {
+					position += channel.write(record, position);
+				}
+				offsets.put(key, offset);
+				records++;
+				evict();
+			} catch (IOException ex) {
+				logger.warn("Embedding cache write failed: {}", ex.getMessage());
+			}
+		}
+
+		synchronized void close() {
+			closed = true;
+			offsets.clear();
+			if (channel != null) {
+				try {
+					channel.force(false);
+					channel.close();
+				} catch (IOException ex) {
+					logger.warn("Failed to close embedding cache {}: {}", file, ex.getMessage());
+				}
+				channel = null;
+			}
+		}
+
+		private void open() throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+		}
+
+		private void load() throws IOException {
+			long size = channel.size();
+			long offset = 0;
+			while (offset + RECORD_HEADER <= size) {
+				ByteBuffer header = read(offset, RECORD_HEADER);
+				Key key = new Key(header.getLong(), header.getLong());
+				long next = offset + RECORD_HEADER + (long) header.getInt() * Float.BYTES;
+				if (next > size) {
+					break;
+				}
+				// A later record of the same key replaces the earlier one and counts as more recent
+				offsets.put(key, offset);
+				records++;
+				offset = next;
+			}
+			channel.truncate(offset);
+			evict();
+			logger.info("Loaded {} cached embeddings from {}", offsets.size(), file);
+		}
+
+		// Drop the least recently used entries beyond the bound, and compact once half the file is dead
+		private void evict() {
+			Iterator<Key> eldest = offsets.keySet().iterator();
+			while (offsets.size() > maxEntries) {
+				eldest.next();
+				eldest.remove();
+			}
+			if (records - offsets.size() >= Math.max(offsets.size(), 1)) {
+				compact();
+			}
+		}
+
+		// Copy the live records, least recently used first, to a new file that replaces the old one
+		private void compact() {
+			Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+			Map<Key, Long> moved = new LinkedHashMap<>();
+			try {
+				try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+					long position = 0;
+					for (Map.Entry<Key, Long> entry : offsets.entrySet()) {
+						int dimensions = read(entry.getValue() + Long.BYTES * 2, Integer.BYTES).getInt();
+						ByteBuffer record = read(entry.getValue(), RECORD_HEADER + dimensions * Float.BYTES);
+						moved.put(entry.getKey(), position);
+						while (record.hasRemaining()) {
+							position += out.write(record, position);
+						}
+					}
+					out.force(false);
+				}
+				channel.close();
+				Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				logger.debug("Compacted embedding cache {} from {} to {} records", file, records, moved.size());
+				offsets.clear();
+				offsets.putAll(moved);
+				records = moved.size();
+				open();
+			} catch (IOException ex) {
+				logger.warn("Embedding cache compaction failed: {}", ex.getMessage());
+				try {
+					Files.deleteIfExists(compacted);
+					if (!channel.isOpen()) {
+						open();
+					}
+				} catch (IOException reopen) {
+					logger.warn("Embedding cache {} unavailable: {}", file, reopen.getMessage());
+					close();
+				}
+			}
+		}
+
+		private ByteBuffer read(long position, int length) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					throw new IOException("Unexpected end of embedding cache");
+				}
+			}
+			return buffer.flip();
+		}
+	}
+}
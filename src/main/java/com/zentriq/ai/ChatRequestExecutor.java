@@ -0,0 +1,98 @@
+package com.zentriq.ai;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs RAG queries off the JavaFX Application Thread.
+ * A fixed pool bounds how many LLM calls run at once and a bounded queue caps
+ * how many may wait, so a burst of Enter presses is rejected instead of piling up.
+ */
+@Service
+public class ChatRequestExecutor {
+
+	private final OllamaService ollamaService;
+	private final ThreadPoolExecutor executor;
+
+	public ChatRequestExecutor(OllamaService ollamaService,
+			                   @Value("${zentriq.chat.max-concurrent:2}") int maxConcurrent,
+			                   @Value("${zentriq.chat.queue-depth:4}") int queueDepth) {
+		this.ollamaService = ollamaService;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueDepth),
+				runnable -> {
+					Thread thread = new Thread(runnable, "zentriq-chat-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				},
+				new ThreadPoolExecutor.AbortPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Submit a query. Tokens are handed to {@code onToken} on the worker thread as they
+	 * stream in; the returned future completes with the full answer. Cancelling the
+	 * future aborts the request, whether it is still queued (its queue slot is freed at once)
+	 * or already generating.
+	 * If the queue is full the future fails immediately with a {@link RejectedExecutionException}.
+	 */
+	public CompletableFuture<String> submit(String userQuery, Consumer<String> onToken) {
+		return submit(userQuery, null, onToken);
+	}
+
+	// Same, retrieving context only from chunks matching the filter (null = all)
+	public CompletableFuture<String> submit(String userQuery, Filter.Expression filter, Consumer<String> onToken) {
+		CompletableFuture<String> result = new CompletableFuture<>();
+		FutureTask<Void> task = new FutureTask<>(() -> {
+			StringBuilder answer = new StringBuilder();
+			try {
+				// blockLast() cancels the upstream stream when this thread is interrupted
+				ollamaService.askStream(userQuery, filter)
+						.doOnNext(token -> {
+							answer.append(token);
+							onToken.accept(token);
+						})
+						.blockLast();
+				result.complete(answer.toString());
+			} catch (Throwable ex) {
+				result.completeExceptionally(ex);
+			}
+		}, null);
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException ex) {
+			return CompletableFuture.failedFuture(ex);
+		}
+		result.whenComplete((answer, ex) -> {
+			if (result.isCancelled()) {
+				task.cancel(true);
+				// A queued task would otherwise hold its slot until a worker skips it
+				executor.remove(task);
+			}
+		});
+		return result;
+	}
+
+	// Requests currently queued or running
+	public int getPendingCount() {
+		return executor.getActiveCount() + executor.getQueue().size();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
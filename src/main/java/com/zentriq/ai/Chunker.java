@@ -0,0 +1,28 @@
+package com.zentriq.ai;
+
+/**
+ * Strategy for cutting document text into chunks for RAG.
+ *
+ * Chunkers work on offsets into a {@link CharSequence} and never copy text themselves; the
+ * caller materialises each span once, when it builds the {@link org.springframework.ai.document.Document}.
+ * They can be fed incrementally: with {@code endOfInput == false} a chunker only emits spans it
+ * is sure about and returns the offset where the next chunk will start, so the caller may drop
+ * everything before it and append more text.
+ */
+public interface Chunker {
+
+	/**
+	 * Receives the {@code [start, end)} range of each chunk; consecutive spans may overlap.
+	 */
+	@FunctionalInterface
+	interface SpanConsumer {
+
+		void accept(int start, int end);
+	}
+
+	/**
+	 * Emit chunk spans of {@code text} and return the offset of the first character not yet
+	 * covered by a final decision (equal to {@code text.length()} once {@code endOfInput} is set).
+	 */
+	int split(CharSequence text, boolean endOfInput, SpanConsumer sink);
+}
@@ -0,0 +1,201 @@
+package com.zentriq.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns retrieved chunks into the context block of a prompt, spending as few tokens as possible.
+ *
+ * Chunks go in best score first. Each chunk is compared with what is already in by word
+ * shingles (runs of {@value #SHINGLE_WORDS} words): a chunk mostly made of seen shingles is
+ * dropped as a near-duplicate, and the repeated sentences that overlapping chunks share at their
+ * edges are trimmed. Chunks are added until {@code tokenBudget} is reached; the chunk that
+ * crosses it is cut at a word boundary if enough room is left, otherwise left out.
+ */
+@Component
+public class ContextAssembler {
+
+	private static final Logger logger = LoggerFactory.getLogger(ContextAssembler.class);
+
+	static final String SEPARATOR = "\n---\n";
+	static final int SHINGLE_WORDS = 3;
+
+	// Fewer repeated shingles at a chunk's edge are a common phrase, not chunker overlap
+	private static final int MIN_OVERLAP_SHINGLES = 3;
+
+	// Cutting a chunk shorter than this leaves too little to be useful
+	private static final int MIN_TRUNCATED_TOKENS = 32;
+
+	private static final int SEPARATOR_TOKENS = TokenCounter.count(SEPARATOR);
+
+	/**
+	 * Context block and what went into it.
+	 *
+	 * @param candidateTokens tokens the chunks would have taken concatenated as they came
+	 */
+	public record Context(String text, List<Document> chunks, int tokens, int candidateTokens, int duplicates,
+			boolean truncated) {
+
+		public int savedTokens() {
+			return Math.max(0, candidateTokens - tokens);
+		}
+	}
+
+	private final int tokenBudget;
+	private final double duplicateOverlap;
+
+	public ContextAssembler(@Value("${zentriq.context.token-budget:1024}") int tokenBudget,
+			                @Value("${zentriq.context.duplicate-overlap:0.8}") double duplicateOverlap) {
+		this.tokenBudget = tokenBudget;
+		this.duplicateOverlap = duplicateOverlap;
+	}
+
+	public Context assemble(List<Document> candidates) {
+		// Stable, so chunks without a score keep their retrieval order behind scored ones
+		List<Document> ordered = new ArrayList<>(candidates);
+		ordered.sort(Comparator.comparingDouble(ContextAssembler::score).reversed());
+
+		StringBuilder text = new StringBuilder();
+		List<Document> chunks = new ArrayList<>();
+		Set<Long> seen = new HashSet<>();
+		int tokens = 0;
+		int candidateTokens = 0;
+		int duplicates = 0;
+		boolean truncated = false;
+		boolean full = false;
+		for (Document doc : ordered) {
+			String chunk = doc.getText() == null ? "" : doc.getText();
+			candidateTokens += TokenCounter.count(chunk) + SEPARATOR_TOKENS;
+			if (full) {
+				continue;
+			}
+			List<Word> words = words(chunk);
+			long[] shingles = shingles(words);
+			if (isDuplicate(shingles, seen)) {
+				duplicates++;
+				continue;
+			}
+			chunk = trimOverlap(chunk, words, shingles, seen);
+			for (long shingle : shingles) {
+				seen.add(shingle);
+			}
+
+			int chunkTokens = TokenCounter.count(chunk) + SEPARATOR_TOKENS;
+			if (tokens + chunkTokens > tokenBudget) {
+				full = true;
+				int room = tokenBudget - tokens - SEPARATOR_TOKENS;
+				if (room < MIN_TRUNCATED_TOKENS) {
+					continue;
+				}
+				chunk = chunk.substring(0, TokenCounter.advance(chunk, 0, chunk.length(), room)).stripTrailing();
+				chunkTokens = TokenCounter.count(chunk) + SEPARATOR_TOKENS;
+				truncated = true;
+			}
+			text.append(chunk).append(SEPARATOR);
+			chunks.add(doc);
+			tokens += chunkTokens;
+		}
+
+		Context context = new Context(text.toString(), chunks, tokens, candidateTokens, duplicates, truncated);
+		if (!candidates.isEmpty()) {
+			logger.info("Context: {} of {} chunks, {} tokens, {} saved ({} near-duplicate{})", chunks.size(),
+					candidates.size(), tokens, context.savedTokens(), duplicates, truncated ? ", last chunk cut" : "");
+		}
+		return context;
+	}
+
+	private static double score(Document doc) {
+		return doc.getScore() == null ? Double.NEGATIVE_INFINITY : doc.getScore();
+	}
+
+	// Most of the chunk's shingles are already in the context
+	private boolean isDuplicate(long[] shingles, Set<Long> seen) {
+		if (shingles.length == 0 || seen.isEmpty()) {
+			return false;
+		}
+		int repeated = 0;
+		for (long shingle : shingles) {
+			if (seen.contains(shingle)) {
+				repeated++;
+			}
+		}
+		return repeated >= duplicateOverlap * shingles.length;
+	}
+
+	/**
+	 * Drop the leading and trailing words already in the context, as when the chunker repeated
+	 * the previous chunk's last sentences at the start of this one.
+	 */
+	private static String trimOverlap(String chunk, List<Word> words, long[] shingles, Set<Long> seen) {
+		if (seen.isEmpty() || shingles.length == 0) {
+			return chunk;
+		}
+		int leading = 0;
+		while (leading < shingles.length && seen.contains(shingles[leading])) {
+			leading++;
+		}
+		int trailing = 0;
+		while (trailing < shingles.length - leading && seen.contains(shingles[shingles.length - 1 - trailing])) {
+			trailing++;
+		}
+		if (leading + trailing >= shingles.length) {
+			return chunk;
+		}
+		leading = leading < MIN_OVERLAP_SHINGLES ? 0 : leading;
+		trailing = trailing < MIN_OVERLAP_SHINGLES ? 0 : trailing;
+		// Shingle i covers words i .. i + SHINGLE_WORDS - 1
+		int from = leading == 0 ? 0 : words.get(leading + SHINGLE_WORDS - 1).start();
+		int to = trailing == 0 ? chunk.length() : words.get(words.size() - trailing - SHINGLE_WORDS).end();
+		if (from >= to) {
+			return chunk;
+		}
+		return chunk.substring(from, to).strip();
+	}
+
+	private record Word(String text, int start, int end) {
+	}
+
+	private static List<Word> words(String text) {
+		List<Word> words = new ArrayList<>();
+		int i = 0;
+		while (i < text.length()) {
+			if (!Character.isLetterOrDigit(text.charAt(i))) {
+				i++;
+				continue;
+			}
+			int start = i;
+			while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+				i++;
+			}
+			words.add(new Word(text.substring(start, i).toLowerCase(Locale.ROOT), start, i));
+		}
+		return words;
+	}
+
+	// Hash of every run of SHINGLE_WORDS consecutive words, in text order
+	private static long[] shingles(List<Word> words) {
+		int count = words.size() - SHINGLE_WORDS + 1;
+		if (count <= 0) {
+			return new long[0];
+		}
+		long[] shingles = new long[count];
+		for (int i = 0; i < count; i++) {
+			long hash = 1125899906842597L;
+			for (int j = i; j < i + SHINGLE_WORDS; j++) {
+				hash = 31 * hash + words.get(j).text().hashCode();
+			}
+			shingles[i] = hash;
+		}
+		return shingles;
+	}
+}
@@ -0,0 +1,249 @@
+package com.zentriq.ai;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Prior turns of the conversation, compacted to a fixed token budget.
+ *
+ * The latest turns are kept verbatim. Once there are more than {@code recentTurns} of them, or
+ * they no longer fit the budget, the oldest are handed to a background task that folds them into
+ * a running summary with the chat model. Each turn is summarised once and the summary is reused
+ * by every later prompt, so the history part of a prompt, and the work per turn, stay bounded
+ * however long the conversation gets. Turns waiting for the summariser are still rendered
+ * verbatim when they fit, so nothing drops out of the prompt while a summary is in progress.
+ * If summarising fails (the model is down), waiting turns that could no longer be rendered are
+ * dropped, oldest first, so they do not pile up.
+ */
+@Service
+public class ConversationMemory {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConversationMemory.class);
+
+	/**
+	 * One question and its answer.
+	 */
+	public record Turn(String question, String answer, int tokens) {
+
+		// Counted as rendered, labels included, so the budget holds for the prompt text
+		Turn(String question, String answer) {
+			this(question, answer, TokenCounter.count(render(question, answer)));
+		}
+
+		String render() {
+			return render(question, answer);
+		}
+
+		private static String render(String question, String answer) {
+			return "User: " + question + "\nAssistant: " + answer + "\n";
+		}
+	}
+
+	private final ChatModel chatModel;
+	private final int tokenBudget;
+	private final int recentTurns;
+	private final int summaryTokens;
+	private final Executor summarizer;
+	private final ExecutorService ownedExecutor;
+
+	private final Deque<Turn> recent = new ArrayDeque<>();
+	private final List<Turn> pending = new ArrayList<>();
+	private String summary = "";
+	private boolean summarizing;
+	// Bumped by reset() so a summary computed for a discarded conversation is dropped
+	private long generation;
+	// Summaries failed in a row; only the first logs its stack trace
+	private int failures;
+
+	@Autowired
+	public ConversationMemory(ChatModel chatModel,
+			                  @Value("${zentriq.memory.token-budget:1024}") int tokenBudget,
+			                  @Value("${zentriq.memory.recent-turns:4}") int recentTurns,
+			                  @Value("${zentriq.memory.summary-tokens:256}") int summaryTokens) {
+		this(chatModel, tokenBudget, recentTurns, summaryTokens, Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "zentriq-memory");
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	ConversationMemory(ChatModel chatModel, int tokenBudget, int recentTurns, int summaryTokens, Executor summarizer) {
+		this.chatModel = chatModel;
+		this.tokenBudget = tokenBudget;
+		this.recentTurns = recentTurns;
+		this.summaryTokens = summaryTokens;
+		this.summarizer = summarizer;
+		this.ownedExecutor = summarizer instanceof ExecutorService service ? service : null;
+	}
+
+	// Remember a completed exchange; may schedule older turns for summarisation
+	public void record(String question, String answer) {
+		boolean schedule;
+		synchronized (this) {
+			recent.addLast(new Turn(question, answer));
+			int tokens = TokenCounter.count(summary) + recent.stream().mapToInt(Turn::tokens).sum();
+			while (recent.size() > 1 && (recent.size() > recentTurns || tokens > tokenBudget)) {
+				Turn oldest = recent.removeFirst();
+				tokens -= oldest.tokens();
+				pending.add(oldest);
+			}
+			schedule = !pending.isEmpty() && !summarizing;
+			summarizing |= schedule;
+		}
+		if (schedule) {
+			summarizer.execute(this::summarizePending);
+		}
+	}
+
+	/**
+	 * History to put in front of the next question, at most {@code tokenBudget} tokens:
+	 * the summary, then as many of the newest turns as fit, oldest first. Empty for a new conversation.
+	 */
+	public synchronized String render() {
+		StringBuilder text = new StringBuilder();
+		int used = 0;
+		if (!summary.isEmpty()) {
+			text.append("Summary of the earlier conversation: ").append(summary).append("\n\n");
+			used = TokenCounter.count(text);
+		}
+		List<Turn> included = new ArrayList<>();
+		Iterator<Turn> newestFirst = recent.descendingIterator();
+		boolean full = false;
+		while (newestFirst.hasNext() && !full) {
+			Turn turn = newestFirst.next();
+			full = used + turn.tokens() > tokenBudget;
+			if (!full) {
+				included.add(0, turn);
+				used += turn.tokens();
+			}
+		}
+		// Turns the summariser has not absorbed yet, newest first, behind the recent ones
+		for (int i = pending.size() - 1; i >= 0 && !full; i--) {
+			Turn turn = pending.get(i);
+			full = used + turn.tokens() > tokenBudget;
+			if (!full) {
+				included.add(0, turn);
+				used += turn.tokens();
+			}
+		}
+		included.forEach(turn -> text.append(turn.render()));
+		return text.toString();
+	}
+
+	public synchronized String getSummary() {
+		return summary;
+	}
+
+	// Turns waiting for the summariser
+	synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	// Forget the conversation, e.g. on logout
+	public synchronized void reset() {
+		recent.clear();
+		pending.clear();
+		summary = "";
+		generation++;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (ownedExecutor != null) {
+			ownedExecutor.shutdownNow();
+		}
+	}
+
+	// Fold pending turns into the summary until none are left
+	private void summarizePending() {
+		while (true) {
+			List<Turn> batch;
+			String previous;
+			long startedGeneration;
+			synchronized (this) {
+				if (pending.isEmpty()) {
+					summarizing = false;
+					return;
+				}
+				batch = List.copyOf(pending);
+				previous = summary;
+				startedGeneration = generation;
+			}
+			String updated;
+			try {
+				updated = summarize(previous, batch);
+			} catch (RuntimeException ex) {
+				int dropped;
+				int failed;
+				synchronized (this) {
+					summarizing = false;
+					dropped = dropUnrenderable();
+					failed = ++failures;
+				}
+				if (failed == 1) {
+					logger.warn("Failed to summarise {} conversation turns, keeping them verbatim as far as they fit"
+							+ " ({} dropped)", batch.size(), dropped, ex);
+				} else {
+					logger.warn("Summarising still failing ({} times in a row, {} turns dropped): {}", failed, dropped,
+							ex.toString());
+				}
+				return;
+			}
+			synchronized (this) {
+				if (failures > 0) {
+					logger.info("Summarising works again after {} failures", failures);
+					failures = 0;
+				}
+				if (generation == startedGeneration) {
+					summary = updated;
+					pending.subList(0, batch.size()).clear();
+				}
+			}
+		}
+	}
+
+	// Drop the oldest waiting turns beyond what render() could ever show; returns how many went
+	private int dropUnrenderable() {
+		int tokens = pending.stream().mapToInt(Turn::tokens).sum();
+		int dropped = 0;
+		while (!pending.isEmpty() && tokens > tokenBudget) {
+			tokens -= pending.remove(0).tokens();
+			dropped++;
+		}
+		return dropped;
+	}
+
+	private String summarize(String previous, List<Turn> turns) {
+		StringBuilder conversation = new StringBuilder();
+		turns.forEach(turn -> conversation.append(turn.render()));
+		String prompt = """
+			Update the summary of a conversation between a user and an assistant.
+			Keep names, numbers and decisions; drop greetings and repetition.
+			Answer with the summary only, in at most %d words.
+			Current summary:
+			%s
+			New messages:
+			%s
+			""".formatted(summaryTokens * 3 / 4, previous.isEmpty() ? "(none)" : previous, conversation);
+		String text = chatModel.call(new Prompt(prompt)).getResult().getOutput().getText().strip();
+		// The model does not always respect the length, and the budget depends on it
+		int end = TokenCounter.advance(text, 0, text.length(), summaryTokens);
+		return text.substring(0, end).strip();
+	}
+}
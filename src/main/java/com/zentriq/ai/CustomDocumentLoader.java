@@ -1,14 +1,27 @@
 package com.zentriq.ai;
 
-import java.io.FileReader;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.ai.document.Document;
 
@@ -17,57 +30,399 @@ import com.opencsv.exceptions.CsvValidationException;
 
 public class CustomDocumentLoader {
 
+	// Chunk metadata: the source file's name, and the collection it was indexed into (set by IngestionService)
+	public static final String FILENAME_KEY = "filename";
+	public static final String COLLECTION_KEY = "collection";
+
+	// Used when no chunker is configured, e.g. by loadFiles
+	static final Chunker DEFAULT_CHUNKER = new BoundaryAwareChunker();
+
+	// Pages stripped per PDFTextStripper pass when streaming a PDF
+	static final int PDF_PAGES_PER_BATCH = 8;
+
+	// Smaller PDFs are not worth opening one document handle per worker
+	static final int PDF_PARALLEL_MIN_PAGES = 32;
+
 	//Load .txt,.pdf or .csv files return chunked document
 	public static List<Document> loadFiles(Path path) throws IOException{
-		String content;
-		if(path.toString().endsWith(".txt")) {
-			content = Files.readString(path);
-		} else if(path.toString().endsWith(".txt")) {
-			content = Files.readString(path);
-		} else if(path.toString().endsWith(".txt")) {
-			content = Files.readString(path);
-		} else {
+		List<Document> chunks = new ArrayList<>();
+		streamFile(path, chunks::add);
+		return chunks;
+	}
+
+	/**
+	 * Load a .txt, .pdf or .csv file and hand each chunk to {@code sink} as soon as it is cut,
+	 * so indexing can start before the whole file is parsed. Returns the number of chunks.
+	 */
+	public static int streamFile(Path path, Consumer<Document> sink) throws IOException {
+		return streamFile(path, sink, DEFAULT_CHUNKER, 1);
+	}
+
+	/**
+	 * Same as {@link #streamFile(Path, Consumer)}, cutting text with {@code chunker} and extracting
+	 * large PDFs with up to {@code pdfParallelism} threads (0 = one per core, 1 = sequential).
+	 */
+	public static int streamFile(Path path, Consumer<Document> sink, Chunker chunker, int pdfParallelism) throws IOException {
+		String fileName = path.getFileName().toString();
+		String type = fileType(path);
+		if (type.equals("pdf")) {
+			int parallelism = pdfParallelism > 0 ? pdfParallelism : Runtime.getRuntime().availableProcessors();
+			if (parallelism > 1) {
+				return streamPdfParallel(path, chunker, parallelism, PDF_PAGES_PER_BATCH, sink);
+			}
+			return streamPdf(path, chunker, PDF_PAGES_PER_BATCH, sink);
+		}
+		if (type.equals("csv")) {
+			return streamCsv(path, chunker, sink);
+		}
+		if (!type.equals("txt")) {
 			throw new IllegalArgumentException("Unsupported file type: "+path.toString());
 		}
-		
-		return chunckDocument(content, path.getFileName().toString());
+		List<Document> chunks = chunckDocument(Files.readString(path), fileName, chunker);
+		chunks.forEach(sink);
+		return chunks.size();
+	}
+
+	// Lower-case extension without the dot ("pdf", "csv", "txt"), "" if none; also the metrics tag
+	public static String fileType(Path path) {
+		String fileName = path.getFileName().toString();
+		int dot = fileName.lastIndexOf('.');
+		return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase();
 	}
-	
-	// Read PDF content as a string
-	private static String readPDF(Path path) throws IOException{
-		try( PDDocument pdf = Loader.loadPDF(path.toFile())){
-			PDFTextStripper stripper = new PDFTextStripper();
-			return stripper.getText(pdf);
+
+	/**
+	 * Strip a PDF {@code pagesPerBatch} pages at a time and emit chunks as they fill up.
+	 * Only one batch of page text plus a partial chunk is held in memory, whatever the page count.
+	 * Each chunk records the page it starts on.
+	 */
+	static int streamPdf(Path path, Chunker chunker, int pagesPerBatch, Consumer<Document> sink) throws IOException {
+		ChunkBuffer buffer = new ChunkBuffer(path.getFileName().toString(), chunker, sink);
+		try (PDDocument pdf = Loader.loadPDF(path.toFile(), IOUtils.createTempFileOnlyStreamCache())) {
+			PageTextStripper stripper = new PageTextStripper();
+			int pageCount = pdf.getNumberOfPages();
+			for (int start = 1; start <= pageCount; start += pagesPerBatch) {
+				int end = Math.min(start + pagesPerBatch - 1, pageCount);
+				List<String> pages = stripper.stripPages(pdf, start, end);
+				for (int i = 0; i < pages.size(); i++) {
+					buffer.append(pages.get(i), start + i);
+				}
+			}
 		}
+		buffer.flush();
+		return buffer.count;
+	}
+
+	/**
+	 * Parallel variant of {@link #streamPdf}: page windows are split across a fork-join pool where
+	 * every worker strips its ranges with its own {@link PDDocument} handle (PDFBox documents are
+	 * not thread-safe). Page texts are reassembled in page order before chunking, window by
+	 * window, so memory stays bounded as in the sequential mode.
+	 */
+	static int streamPdfParallel(Path path, Chunker chunker, int parallelism, int pagesPerTask, Consumer<Document> sink) throws IOException {
+		int pageCount;
+		try (PDDocument pdf = Loader.loadPDF(path.toFile(), IOUtils.createTempFileOnlyStreamCache())) {
+			pageCount = pdf.getNumberOfPages();
+		}
+		if (pageCount < PDF_PARALLEL_MIN_PAGES) {
+			return streamPdf(path, chunker, pagesPerTask, sink);
+		}
+
+		ChunkBuffer buffer = new ChunkBuffer(path.getFileName().toString(), chunker, sink);
+		Queue<PDDocument> opened = new ConcurrentLinkedQueue<>();
+		ThreadLocal<PDDocument> handle = ThreadLocal.withInitial(() -> {
+			try {
+				PDDocument pdf = Loader.loadPDF(path.toFile(), IOUtils.createTempFileOnlyStreamCache());
+				opened.add(pdf);
+				return pdf;
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		});
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			int windowPages = parallelism * pagesPerTask * 2;
+			for (int start = 1; start <= pageCount; start += windowPages) {
+				int end = Math.min(start + windowPages - 1, pageCount);
+				List<String> pages = pool.invoke(new PageRangeTask(handle, start, end, pagesPerTask));
+				for (int i = 0; i < pages.size(); i++) {
+					buffer.append(pages.get(i), start + i);
+				}
+			}
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		} finally {
+			pool.shutdown();
+			for (PDDocument pdf : opened) {
+				pdf.close();
+			}
+		}
+		buffer.flush();
+		return buffer.count;
+	}
+
+	/**
+	 * Read a CSV row by row and emit chunks made of whole rows, each starting with the header
+	 * row so the model knows what the columns mean. {@code chunker} decides how much text goes
+	 * into a chunk, header included; the chunk then ends at the last row that fits (or holds a
+	 * single row that does not fit on its own), so rows are never split or repeated. Only the
+	 * current chunk is held in memory. Chunks record the 1-based range of data rows they contain
+	 * in {@code rowStart}/{@code rowEnd}. Bytes that are not valid UTF-8 (e.g. a Windows-1252
+	 * export) are replaced rather than failing the file.
+	 */
+	static int streamCsv(Path path, Chunker chunker, Consumer<Document> sink) throws IOException {
+		String fileName = path.getFileName().toString();
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		try (CSVReader reader = new CSVReader(new BufferedReader(new InputStreamReader(Files.newInputStream(path),
+				decoder)))) {
+			String[] line = reader.readNext();
+			if (line == null) {
+				return 0;
+			}
+			CsvChunkBuffer buffer = new CsvChunkBuffer(String.join(", ", line) + "\n", fileName, chunker, sink);
+			while ((line = reader.readNext()) != null) {
+				buffer.append(String.join(", ", line) + "\n");
+			}
+			buffer.flush();
+			return buffer.count;
+		} catch (CsvValidationException ex) {
+			throw new IOException("Invalid CSV file: " + fileName, ex);
+		}
+	}
+
+	private static Document csvChunk(String text, String fileName, int rowStart, int rowEnd) {
+		Document doc = new Document(text);
+		doc.getMetadata().put(FILENAME_KEY, fileName);
+		doc.getMetadata().put("rowStart", rowStart);
+		doc.getMetadata().put("rowEnd", rowEnd);
+		return doc;
 	}
-	
-	// Read CSV content as a string (all rows concatenated)
-	private static String readCsv(Path path) throws IOException, CsvValidationException {
-        StringBuilder sb = new StringBuilder();
-        try (CSVReader reader = new CSVReader(new FileReader(path.toFile()))) {
-            String[] line;
-            while ((line = reader.readNext()) != null) {
-                sb.append(String.join(", ", line)).append("\n");
-            }
-        }
-        return sb.toString();
-    }
 
 	// Split content into chunks for RAG
-	private static List<Document> chunckDocument(String content, String fileName) {
+	static List<Document> chunckDocument(CharSequence content, String fileName, Chunker chunker) {
 		List<Document> chunks = new ArrayList<>();
-        int chunkSize = 500; // adjust size depending on your LLM token limit
-        int start = 0;
-
-        while (start < content.length()) {
-            int end = Math.min(start + chunkSize, content.length());
-            String chunk = content.substring(start, end);
-            Document doc = new Document(chunk);
-            doc.getMetadata().put("filename", fileName);
-            chunks.add(doc);
-            start = end;
-        }
-
-        return chunks;
+		ChunkBuffer buffer = new ChunkBuffer(fileName, chunker, chunks::add);
+		buffer.append(content, 0);
+		buffer.flush();
+		return chunks;
+	}
+
+	/**
+	 * PDFTextStripper that returns the text of a page range split per page, by recording
+	 * how far the output had grown each time a page ends.
+	 */
+	private static final class PageTextStripper extends PDFTextStripper {
+
+		private StringWriter output;
+		private final List<Integer> pageEnds = new ArrayList<>();
+
+		List<String> stripPages(PDDocument pdf, int startPage, int endPage) throws IOException {
+			setStartPage(startPage);
+			setEndPage(endPage);
+			output = new StringWriter();
+			pageEnds.clear();
+			writeText(pdf, output);
+			List<String> pages = new ArrayList<>(pageEnds.size());
+			StringBuffer text = output.getBuffer();
+			int from = 0;
+			for (int end : pageEnds) {
+				pages.add(text.substring(from, end));
+				from = end;
+			}
+			return pages;
+		}
+
+		@Override
+		protected void endPage(PDPage page) throws IOException {
+			super.endPage(page);
+			pageEnds.add(output.getBuffer().length());
+		}
+	}
+
+	/**
+	 * Splits a page range in halves until it is small enough to strip in one pass.
+	 * Results are joined left before right, so pages come back in order.
+	 */
+	private static final class PageRangeTask extends RecursiveTask<List<String>> {
+
+		private final ThreadLocal<PDDocument> handle;
+		private final int startPage;
+		private final int endPage;
+		private final int pagesPerTask;
+
+		PageRangeTask(ThreadLocal<PDDocument> handle, int startPage, int endPage, int pagesPerTask) {
+			this.handle = handle;
+			this.startPage = startPage;
+			this.endPage = endPage;
+			this.pagesPerTask = pagesPerTask;
+		}
+
+		@Override
+		protected List<String> compute() {
+			if (endPage - startPage + 1 <= pagesPerTask) {
+				try {
+					return new PageTextStripper().stripPages(handle.get(), startPage, endPage);
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			}
+			int middle = (startPage + endPage) >>> 1;
+			PageRangeTask left = new PageRangeTask(handle, startPage, middle, pagesPerTask);
+			left.fork();
+			List<String> right = new PageRangeTask(handle, middle + 1, endPage, pagesPerTask).compute();
+			List<String> pages = new ArrayList<>(left.join());
+			pages.addAll(right);
+			return pages;
+		}
+	}
+
+	/**
+	 * Header plus pending CSV rows. Whenever the pending text has grown enough for the chunker to
+	 * cut, the rows before the cut are emitted as one chunk and the rest stay pending. The chunker
+	 * is asked again only after the text has grown by half, so a row is not rescanned once per
+	 * following row.
+	 */
+	private static final class CsvChunkBuffer {
+
+		private final String header;
+		private final String fileName;
+		private final Chunker chunker;
+		private final Consumer<Document> sink;
+		private final StringBuilder pending = new StringBuilder();
+		// Offset in pending just past each pending row's newline
+		private final List<Integer> rowEnds = new ArrayList<>();
+		private int firstRow = 1;
+		private int nextCheck;
+		private int count;
+
+		CsvChunkBuffer(String header, String fileName, Chunker chunker, Consumer<Document> sink) {
+			this.header = header;
+			this.fileName = fileName;
+			this.chunker = chunker;
+			this.sink = sink;
+			pending.append(header);
+		}
+
+		void append(String row) {
+			pending.append(row);
+			rowEnds.add(pending.length());
+			if (pending.length() >= nextCheck) {
+				while (!rowEnds.isEmpty()) {
+					if (!emitCut(false)) {
+						break;
+					}
+				}
+				nextCheck = pending.length() + pending.length() / 2;
+			}
+		}
+
+		void flush() {
+			while (!rowEnds.isEmpty()) {
+				emitCut(true);
+			}
+		}
+
+		// Emit the rows before the chunker's first cut; false if it needs more text to decide
+		private boolean emitCut(boolean endOfInput) {
+			int[] cut = { -1 };
+			chunker.split(pending, endOfInput, (start, end) -> {
+				if (cut[0] < 0) {
+					cut[0] = end;
+				}
+			});
+			if (cut[0] < 0) {
+				if (!endOfInput) {
+					return false;
+				}
+				cut[0] = pending.length();
+			}
+			// Whole rows up to the cut, ignoring the newline the chunker trims; at least one row
+			int rows = 1;
+			while (rows < rowEnds.size() && rowEnds.get(rows) - 1 <= cut[0]) {
+				rows++;
+			}
+			int end = rowEnds.get(rows - 1);
+			sink.accept(csvChunk(pending.substring(0, end), fileName, firstRow, firstRow + rows - 1));
+			count++;
+			firstRow += rows;
+			pending.delete(header.length(), end);
+			int removed = end - header.length();
+			rowEnds.subList(0, rows).clear();
+			rowEnds.replaceAll(offset -> offset - removed);
+			return true;
+		}
+	}
+
+	/**
+	 * Accumulates streamed text and emits chunks as soon as the {@link Chunker} commits to them,
+	 * carrying the undecided remainder over to the next append. Page numbers are tracked by
+	 * offset into the pending text, so each chunk records the page it starts on (page 0 = unpaged).
+	 */
+	private static final class ChunkBuffer {
+
+		private final String fileName;
+		private final Chunker chunker;
+		private final Consumer<Document> sink;
+		private final StringBuilder pending = new StringBuilder();
+		// Parallel lists: offset into pending where each buffered page starts, and its number
+		private final List<Integer> pageOffsets = new ArrayList<>();
+		private final List<Integer> pageNumbers = new ArrayList<>();
+		private int count;
+
+		ChunkBuffer(String fileName, Chunker chunker, Consumer<Document> sink) {
+			this.fileName = fileName;
+			this.chunker = chunker;
+			this.sink = sink;
+		}
+
+		void append(CharSequence text, int page) {
+			pageOffsets.add(pending.length());
+			pageNumbers.add(page);
+			pending.append(text);
+			int consumed = chunker.split(pending, false, this::emit);
+			discard(consumed);
+		}
+
+		void flush() {
+			chunker.split(pending, true, this::emit);
+			discard(pending.length());
+		}
+
+		private void emit(int start, int end) {
+			Document doc = new Document(pending.substring(start, end));
+			doc.getMetadata().put(FILENAME_KEY, fileName);
+			int page = pageAt(start);
+			if (page > 0) {
+				doc.getMetadata().put("page", page);
+			}
+			sink.accept(doc);
+			count++;
+		}
+
+		private int pageAt(int offset) {
+			int i = pageOffsets.size() - 1;
+			while (i > 0 && pageOffsets.get(i) > offset) {
+				i--;
+			}
+			return pageNumbers.get(i);
+		}
+
+		// Drop pending[0, consumed) and the pages that ended before it
+		private void discard(int consumed) {
+			if (consumed == 0) {
+				return;
+			}
+			int first = pageOffsets.size() - 1;
+			while (first > 0 && pageOffsets.get(first) > consumed) {
+				first--;
+			}
+			pageOffsets.subList(0, first).clear();
+			pageNumbers.subList(0, first).clear();
+			for (int i = 0; i < pageOffsets.size(); i++) {
+				pageOffsets.set(i, Math.max(0, pageOffsets.get(i) - consumed));
+			}
+			pending.delete(0, consumed);
+		}
 	}
 }
@@ -0,0 +1,28 @@
+package com.zentriq.ai;
+
+/**
+ * The original splitter: a cut every {@code chunkSize} characters, no overlap, no regard for
+ * words or sentences. Kept as a baseline and for {@code zentriq.chunk.strategy=fixed}.
+ */
+public class FixedSizeChunker implements Chunker {
+
+	private final int chunkSize;
+
+	public FixedSizeChunker(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	@Override
+	public int split(CharSequence text, boolean endOfInput, SpanConsumer sink) {
+		int start = 0;
+		while (text.length() - start >= chunkSize) {
+			sink.accept(start, start + chunkSize);
+			start += chunkSize;
+		}
+		if (endOfInput && start < text.length()) {
+			sink.accept(start, text.length());
+			start = text.length();
+		}
+		return start;
+	}
+}
@@ -0,0 +1,142 @@
+package com.zentriq.ai;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.zentriq.vectorstore.MappedVectorStore;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Retrieval for RAG prompts: vector similarity and BM25 keyword search, merged with reciprocal
+ * rank fusion. Each list contributes {@code 1 / (rrfK + rank)} per chunk, so a chunk found by
+ * both ranks first and an exact part number found only by BM25 still makes the cut.
+ *
+ * The keyword index keeps ids only, so keyword hits are read back from the {@link MappedVectorStore};
+ * with the in-memory "simple" store retrieval is vector-only. The index is built from the store
+ * once at startup (or on first use, if created outside Spring), since chunks indexed in earlier
+ * sessions only live on disk.
+ */
+@Service
+public class HybridRetriever {
+
+	private static final Logger logger = LoggerFactory.getLogger(HybridRetriever.class);
+
+	private final VectorStore vectorStore;
+	private final Bm25Index bm25Index;
+	private final int topK;
+	private final int candidates;
+	private final double similarityThreshold;
+	private final int rrfK;
+	private volatile boolean rebuilt;
+
+	public HybridRetriever(VectorStore vectorStore, Bm25Index bm25Index,
+			               @Value("${zentriq.retrieval.top-k:3}") int topK,
+			               @Value("${zentriq.retrieval.candidates:10}") int candidates,
+			               @Value("${zentriq.retrieval.similarity-threshold:0.2}") double similarityThreshold,
+			               @Value("${zentriq.retrieval.rrf-k:60}") int rrfK) {
+		this.vectorStore = vectorStore;
+		this.bm25Index = bm25Index;
+		this.topK = topK;
+		this.candidates = candidates;
+		this.similarityThreshold = similarityThreshold;
+		this.rrfK = rrfK;
+	}
+
+	@PostConstruct
+	public void buildKeywordIndex() {
+		if (vectorStore instanceof MappedVectorStore mapped) {
+			ensureRebuilt(mapped);
+		}
+	}
+
+	// The topK chunks for the query, best first
+	public List<Document> retrieve(String query) {
+		return retrieve(query, null);
+	}
+
+	/**
+	 * The topK chunks for the query among those whose metadata matches the filter (null = all),
+	 * e.g. {@code filename == 'report.pdf'}. Both vector and keyword hits are restricted to it.
+	 */
+	public List<Document> retrieve(String query, Filter.Expression filter) {
+		SearchRequest.Builder request = SearchRequest.builder()
+				.query(query)
+				.topK(candidates)
+				.similarityThreshold(similarityThreshold);
+		if (filter != null) {
+			request.filterExpression(filter);
+		}
+		List<Document> vectorHits = vectorStore.similaritySearch(request.build());
+		if (!(vectorStore instanceof MappedVectorStore mapped)) {
+			return vectorHits.subList(0, Math.min(topK, vectorHits.size()));
+		}
+		ensureRebuilt(mapped);
+		List<Bm25Index.Hit> keywordHits;
+		if (filter == null) {
+			keywordHits = bm25Index.search(query, candidates);
+		} else {
+			// Resolved before searching: the store is not locked from inside the keyword index
+			Set<String> allowed = mapped.matchingIds(filter);
+			keywordHits = bm25Index.search(query, candidates, allowed::contains);
+		}
+
+		Map<String, Double> fused = new LinkedHashMap<>(); // ties keep vector order
+		Map<String, Document> documents = new LinkedHashMap<>();
+		for (int rank = 0; rank < vectorHits.size(); rank++) {
+			Document doc = vectorHits.get(rank);
+			fused.merge(doc.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+			documents.put(doc.getId(), doc);
+		}
+		for (int rank = 0; rank < keywordHits.size(); rank++) {
+			fused.merge(keywordHits.get(rank).id(), 1.0 / (rrfK + rank + 1), Double::sum);
+		}
+
+		List<String> best = fused.keySet().stream()
+				.sorted(Comparator.comparing(fused::get).reversed())
+				.limit(topK)
+				.toList();
+		List<String> missing = best.stream().filter(id -> !documents.containsKey(id)).toList();
+		if (!missing.isEmpty()) {
+			mapped.getDocuments(missing).forEach(doc -> documents.put(doc.getId(), doc));
+		}
+		List<Document> results = new ArrayList<>(best.size());
+		for (String id : best) {
+			Document doc = documents.get(id);
+			if (doc != null) { // deleted since the keyword index saw it
+				// The fused score, so later stages can order chunks; the cosine distance stays in the metadata
+				results.add(doc.mutate().score(fused.get(id)).build());
+			}
+		}
+		return results;
+	}
+
+	private void ensureRebuilt(MappedVectorStore mapped) {
+		if (rebuilt) {
+			return;
+		}
+		synchronized (this) {
+			if (!rebuilt) {
+				long start = System.nanoTime();
+				// Chunks ingested meanwhile are already in; adding them again would only leave dead entries
+				mapped.forEachDocument(doc -> bm25Index.addIfAbsent(doc.getId(), doc.getText()));
+				logger.info("Built keyword index over {} chunks in {} ms", bm25Index.size(),
+						(System.nanoTime() - start) / 1_000_000);
+				rebuilt = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.zentriq.ai;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Queue of file ingestions running in the background, so attaching a file never blocks the UI
+ * and chat keeps working while it is indexed. At most {@code maxJobs} files are parsed and
+ * embedded at once, the rest wait in order. Each job reports progress after every stored batch
+ * and can be cancelled, queued or running; a cancelled or failed file leaves nothing in the index.
+ */
+@Service
+public class IngestionJobService {
+
+	private static final Logger logger = LoggerFactory.getLogger(IngestionJobService.class);
+
+	// Collection attached files are indexed into
+	public static final String COLLECTION = "attachments";
+
+	public enum State {
+		QUEUED, RUNNING, DONE, FAILED, CANCELLED
+	}
+
+	private final IngestionService ingestionService;
+	private final SemanticAnswerCache answerCache;
+	private final ExecutorService executor;
+	private final List<Job> jobs = new CopyOnWriteArrayList<>();
+
+	public IngestionJobService(IngestionService ingestionService, SemanticAnswerCache answerCache,
+			                   @Value("${zentriq.ingest.max-jobs:2}") int maxJobs) {
+		this.ingestionService = ingestionService;
+		this.answerCache = answerCache;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(maxJobs, runnable -> {
+			Thread thread = new Thread(runnable, "zentriq-ingest-job-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Queue a .txt/.pdf/.csv file for indexing. {@code onChange} is called on an ingestion thread
+	 * whenever the job's state or progress changes.
+	 */
+	public Job submit(Path path, Consumer<Job> onChange) {
+		Job job = new Job(path, onChange);
+		jobs.add(job);
+		executor.execute(job::run);
+		return job;
+	}
+
+	// Jobs queued or running, in submission order
+	public List<Job> getActiveJobs() {
+		return List.copyOf(jobs);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		jobs.forEach(Job::cancel);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * One file's ingestion. Progress counts chunks embedded against chunks cut so far; the total
+	 * is only final once the whole file is parsed.
+	 */
+	public final class Job {
+
+		private final Path path;
+		private final Consumer<Job> onChange;
+		private final IngestionService.Session session;
+		private final CompletableFuture<IngestionService.Stats> result = new CompletableFuture<>();
+		private final AtomicBoolean started = new AtomicBoolean();
+		private volatile State state = State.QUEUED;
+		private volatile boolean parsed;
+
+		private Job(Path path, Consumer<Job> onChange) {
+			this.path = path;
+			this.onChange = onChange;
+			this.session = ingestionService.openSession(COLLECTION, (stored, produced, parsed) -> {
+				this.parsed = parsed;
+				notifyChange();
+			});
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		// Chunks embedded and stored so far
+		public int getStored() {
+			return session.getStored();
+		}
+
+		// Chunks cut from the file so far
+		public int getProduced() {
+			return session.getProduced();
+		}
+
+		public boolean isParsed() {
+			return parsed;
+		}
+
+		// Fraction of the chunks cut so far that are stored, -1 before the first chunk
+		public double getProgress() {
+			int produced = session.getProduced();
+			return produced == 0 ? -1 : Math.min(1, (double) session.getStored() / produced);
+		}
+
+		// Completes with the ingestion stats; cancelled or failed like the job
+		public CompletableFuture<IngestionService.Stats> result() {
+			return result;
+		}
+
+		// A queued job never starts; a running one stops at its next chunk and removes what it stored
+		public void cancel() {
+			session.cancel();
+			if (started.compareAndSet(false, true)) {
+				complete(State.CANCELLED, null, new CancellationException("Ingestion cancelled"));
+			}
+		}
+
+		private void run() {
+			if (!started.compareAndSet(false, true)) {
+				return; // cancelled while queued
+			}
+			state = State.RUNNING;
+			notifyChange();
+			State finalState = State.DONE;
+			IngestionService.Stats stats = null;
+			Exception error = null;
+			try {
+				stats = ingestionService.ingest(path, session);
+			} catch (CancellationException ex) {
+				finalState = State.CANCELLED;
+				error = ex;
+			} catch (IOException | RuntimeException ex) {
+				logger.warn("Failed to index {}", path, ex);
+				finalState = State.FAILED;
+				error = ex;
+			}
+			// Chunks were added (or removed again): earlier answers may be incomplete. Cleared before
+			// completing, so whoever waits for the result never sees a stale answer
+			answerCache.invalidateAll();
+			complete(finalState, stats, error);
+		}
+
+		private void complete(State finalState, IngestionService.Stats stats, Exception error) {
+			state = finalState;
+			jobs.remove(this);
+			notifyChange();
+			if (error == null) {
+				result.complete(stats);
+			} else {
+				result.completeExceptionally(error);
+			}
+		}
+
+		private void notifyChange() {
+			try {
+				onChange.accept(this);
+			} catch (RuntimeException ex) {
+				logger.warn("Ingestion progress listener failed", ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package com.zentriq.ai;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Embeds and stores chunks in batches, several batches at a time.
+ * Each batch becomes one embedding request to Ollama; a semaphore bounds how many batches
+ * are in flight so a producer feeding a {@link Session} is slowed down instead of queueing
+ * an unbounded number of chunks in memory.
+ */
+@Service
+public class IngestionService {
+
+	private static final Logger logger = LoggerFactory.getLogger(IngestionService.class);
+
+	private final VectorStore vectorStore;
+	private final Bm25Index bm25Index;
+	private final Chunker chunker;
+	private final RagMetrics metrics;
+	private final int batchSize;
+	private final int concurrency;
+	private final int pdfParallelism;
+	private final ExecutorService executor;
+
+	/**
+	 * Outcome of one ingestion: chunks stored and wall-clock time taken.
+	 */
+	public record Stats(int chunks, long millis) {
+
+		public double chunksPerSecond() {
+			return millis == 0 ? chunks : chunks * 1000.0 / millis;
+		}
+	}
+
+	public IngestionService(VectorStore vectorStore, Bm25Index bm25Index, Chunker chunker, RagMetrics metrics,
+			                @Value("${zentriq.ingest.batch-size:64}") int batchSize,
+			                @Value("${zentriq.ingest.concurrency:2}") int concurrency,
+			                @Value("${zentriq.ingest.pdf-parallelism:0}") int pdfParallelism) {
+		this.vectorStore = vectorStore;
+		this.bm25Index = bm25Index;
+		this.chunker = chunker;
+		this.metrics = metrics;
+		this.batchSize = batchSize;
+		this.concurrency = concurrency;
+		this.pdfParallelism = pdfParallelism;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "zentriq-ingest-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	// Index an already materialised list of chunks
+	public Stats index(List<Document> docs) {
+		Session session = openSession();
+		docs.forEach(session::add);
+		return session.finish();
+	}
+
+	/**
+	 * Parse, chunk and index a file as a pipeline: chunks are embedded while later pages are
+	 * still being parsed, and memory stays bounded by the batches in flight.
+	 */
+	public Stats ingest(Path path) throws IOException {
+		return ingest(path, openSession());
+	}
+
+	/**
+	 * Same as {@link #ingest(Path)}, feeding a session the caller may watch and cancel. A cancelled
+	 * ingestion throws {@link CancellationException}; neither it nor a failed one leaves any of the
+	 * file's chunks indexed.
+	 */
+	public Stats ingest(Path path, Session session) throws IOException {
+		String fileType = CustomDocumentLoader.fileType(path);
+		long start = System.nanoTime();
+		try {
+			CustomDocumentLoader.streamFile(path, session::add, chunker, pdfParallelism);
+			session.markParsed();
+		} catch (IOException | RuntimeException ex) {
+			session.abandon();
+			metrics.recordIngestion(fileType, System.nanoTime() - start, session.getKept(), session.outcome());
+			throw ex;
+		}
+		try {
+			Stats stats = session.finish();
+			metrics.recordIngestion(fileType, System.nanoTime() - start, stats.chunks(), "success");
+			return stats;
+		} catch (RuntimeException ex) {
+			metrics.recordIngestion(fileType, System.nanoTime() - start, session.getKept(), session.outcome());
+			throw ex;
+		}
+	}
+
+	/**
+	 * Start a streaming ingestion: chunks are added one by one as they are produced.
+	 */
+	public Session openSession() {
+		return new Session(null, null);
+	}
+
+	// Same, reporting progress to the listener after every stored batch
+	public Session openSession(ProgressListener listener) {
+		return new Session(null, listener);
+	}
+
+	/**
+	 * Same, tagging every chunk with the collection it belongs to so questions can be limited to
+	 * it; {@code listener} may be null.
+	 */
+	public Session openSession(String collection, ProgressListener listener) {
+		return new Session(collection, listener);
+	}
+
+	/**
+	 * Called from ingestion threads after each batch is stored.
+	 */
+	@FunctionalInterface
+	public interface ProgressListener {
+
+		/**
+		 * @param stored chunks embedded and stored so far
+		 * @param produced chunks cut from the file so far, final once {@code parsed} is true
+		 */
+		void progress(int stored, int produced, boolean parsed);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Collects chunks into batches and hands each full batch to the executor. Not thread-safe:
+	 * a session is fed by a single producer, though any thread may {@link #cancel()} it.
+	 */
+	public final class Session {
+
+		private final long start = System.nanoTime();
+		private final Semaphore inFlight = new Semaphore(concurrency);
+		private final AtomicInteger stored = new AtomicInteger();
+		private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		private final String collection;
+		private final ProgressListener listener;
+		// Ids of stored chunks, for callers that track them; removed again if the session is cancelled or fails
+		private final List<String> storedIds = Collections.synchronizedList(new ArrayList<>());
+		private List<Document> batch = new ArrayList<>(batchSize);
+		private volatile int produced;
+		private volatile boolean parsed;
+		private volatile boolean cancelled;
+		private volatile boolean rolledBack;
+
+		private Session(String collection, ProgressListener listener) {
+			this.collection = collection;
+			this.listener = listener;
+		}
+
+		// Throws CancellationException once the session is cancelled, which stops the parser
+		public void add(Document chunk) {
+			if (cancelled) {
+				throw new CancellationException("Ingestion cancelled");
+			}
+			if (collection != null) {
+				chunk.getMetadata().put(CustomDocumentLoader.COLLECTION_KEY, collection);
+			}
+			produced++;
+			batch.add(chunk);
+			if (batch.size() >= batchSize) {
+				flush();
+			}
+		}
+
+		// Chunks embedded and stored so far
+		public int getStored() {
+			return stored.get();
+		}
+
+		// Ids of the chunks stored so far, e.g. to delete them when the file changes
+		public List<String> getStoredIds() {
+			synchronized (storedIds) {
+				return List.copyOf(storedIds);
+			}
+		}
+
+		// Chunks stored and not rolled back by a cancel or failure
+		private int getKept() {
+			return rolledBack ? 0 : stored.get();
+		}
+
+		// Chunks added so far
+		public int getProduced() {
+			return produced;
+		}
+
+		// No more chunks will be added
+		public void markParsed() {
+			parsed = true;
+			report();
+		}
+
+		// Stop at the next chunk; the producer's finish() or abandon() then removes what was stored
+		public void cancel() {
+			cancelled = true;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * Flush the last partial batch, wait for every batch and report throughput.
+		 * Rethrows the first batch failure, if any, after removing the batches that were stored.
+		 */
+		public Stats finish() {
+			flush();
+			inFlight.acquireUninterruptibly(concurrency);
+			inFlight.release(concurrency);
+			if (cancelled) {
+				rollback();
+				throw new CancellationException("Ingestion cancelled");
+			}
+			RuntimeException error = failure.get();
+			if (error != null) {
+				rollback();
+				throw error;
+			}
+			Stats stats = new Stats(stored.get(), (System.nanoTime() - start) / 1_000_000);
+			logger.info("Indexed {} chunks in {} ms ({} chunks/s)", stats.chunks(), stats.millis(),
+					String.format("%.1f", stats.chunksPerSecond()));
+			return stats;
+		}
+
+		// Drop the pending batch, wait for those already submitted and remove what they stored
+		public void abandon() {
+			batch = new ArrayList<>(batchSize);
+			inFlight.acquireUninterruptibly(concurrency);
+			inFlight.release(concurrency);
+			rollback();
+		}
+
+		// For metrics: "cancelled" or "failure"
+		private String outcome() {
+			return cancelled ? "cancelled" : "failure";
+		}
+
+		private void rollback() {
+			rolledBack = true;
+			List<String> ids;
+			synchronized (storedIds) {
+				ids = List.copyOf(storedIds);
+				storedIds.clear();
+			}
+			if (!ids.isEmpty()) {
+				vectorStore.delete(ids);
+				ids.forEach(bm25Index::remove);
+				logger.info("Ingestion {}, removed {} chunks already stored", outcome(), ids.size());
+			}
+		}
+
+		private void report() {
+			if (listener != null) {
+				listener.progress(stored.get(), produced, parsed);
+			}
+		}
+
+		private void flush() {
+			if (batch.isEmpty() || failure.get() != null || cancelled) {
+				batch = new ArrayList<>(batchSize);
+				return;
+			}
+			List<Document> full = batch;
+			batch = new ArrayList<>(batchSize);
+			inFlight.acquireUninterruptibly();
+			// A batch in flight may have failed, or the session been cancelled, while this one waited
+			if (failure.get() != null || cancelled) {
+				inFlight.release();
+				return;
+			}
+			executor.execute(() -> {
+				try {
+					vectorStore.add(full);
+					full.forEach(doc -> bm25Index.add(doc.getId(), doc.getText()));
+					full.forEach(doc -> storedIds.add(doc.getId()));
+					stored.addAndGet(full.size());
+					report();
+				} catch (RuntimeException ex) {
+					failure.compareAndSet(null, ex);
+				} finally {
+					inFlight.release();
+				}
+			});
+		}
+	}
+}
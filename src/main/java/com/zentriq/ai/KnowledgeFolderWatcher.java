@@ -0,0 +1,344 @@
+package com.zentriq.ai;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the index in step with a knowledge folder: files dropped in are indexed, changed files
+ * re-indexed and deleted files removed, including while the app was not running.
+ *
+ * A manifest records each file's size, modification time, content hash and chunk ids. Only files
+ * whose content hash changed are embedded again; their new chunks are stored before the old ones
+ * are deleted, so a file never drops out of answers mid-update. Filesystem events (an editor
+ * saving writes, renames and deletes a file in quick succession) are collected and processed
+ * together once the folder has been quiet for {@code debounceMillis}.
+ *
+ * Each top-level subfolder is a collection of its own (questions can be limited to it); files
+ * directly in the folder belong to the {@value #COLLECTION} collection.
+ */
+@Service
+public class KnowledgeFolderWatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(KnowledgeFolderWatcher.class);
+
+	private static final Set<String> SUPPORTED_TYPES = Set.of("txt", "pdf", "csv");
+
+	public static final String COLLECTION = "knowledge";
+
+	/**
+	 * What the index holds for one file.
+	 */
+	public record Entry(long size, long modifiedMillis, String sha256, List<String> chunkIds) {
+	}
+
+	private final IngestionService ingestionService;
+	private final VectorStore vectorStore;
+	private final Bm25Index bm25Index;
+	private final SemanticAnswerCache answerCache;
+	private final Path folder;
+	private final Path manifestFile;
+	private final long debounceMillis;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	// Relative path (with '/') to entry; changed on the sync thread only, locked for readers
+	private final Map<String, Entry> manifest = new TreeMap<>();
+	private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+	private volatile boolean rescan;
+	private ScheduledExecutorService syncExecutor;
+	private ScheduledFuture<?> scheduledSync;
+	private WatchService watchService;
+
+	public KnowledgeFolderWatcher(IngestionService ingestionService, VectorStore vectorStore, Bm25Index bm25Index,
+			                      SemanticAnswerCache answerCache,
+			                      @Value("${zentriq.knowledge.folder:}") String folder,
+			                      @Value("${zentriq.knowledge.manifest:${user.home}/.zentriq/knowledge-manifest.json}") String manifestFile,
+			                      @Value("${zentriq.knowledge.debounce-ms:1000}") long debounceMillis) {
+		this.ingestionService = ingestionService;
+		this.vectorStore = vectorStore;
+		this.bm25Index = bm25Index;
+		this.answerCache = answerCache;
+		this.folder = folder.isBlank() ? null : Path.of(folder).toAbsolutePath().normalize();
+		this.manifestFile = Path.of(manifestFile);
+		this.debounceMillis = debounceMillis;
+	}
+
+	/**
+	 * Reconcile the index with the folder, then follow changes. Does nothing when no folder is configured.
+	 */
+	@PostConstruct
+	public synchronized void start() throws IOException {
+		if (folder == null || syncExecutor != null) {
+			return;
+		}
+		Files.createDirectories(folder);
+		loadManifest();
+		syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "zentriq-knowledge-sync");
+			thread.setDaemon(true);
+			return thread;
+		});
+		watchService = FileSystems.getDefault().newWatchService();
+		registerTree(folder);
+		Thread watchThread = new Thread(this::watch, "zentriq-knowledge-watch");
+		watchThread.setDaemon(true);
+		watchThread.start();
+		// Catch up with whatever changed while we were not running
+		rescan = true;
+		syncExecutor.execute(this::sync);
+		logger.info("Watching knowledge folder {} ({} files in manifest)", folder, manifest.size());
+	}
+
+	@PreDestroy
+	public synchronized void stop() throws IOException {
+		if (syncExecutor == null) {
+			return;
+		}
+		watchService.close();
+		syncExecutor.shutdown();
+		try {
+			syncExecutor.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		syncExecutor = null;
+	}
+
+	// Files currently indexed from the folder, by path relative to it
+	public Map<String, Entry> getManifest() {
+		synchronized (manifest) {
+			return Map.copyOf(manifest);
+		}
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				Path dir = (Path) key.watchable();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						rescan = true; // events were lost
+						continue;
+					}
+					Path path = dir.resolve((Path) event.context());
+					if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+						try {
+							registerTree(path);
+						} catch (IOException ex) {
+							// Gone again or unreadable; the rescan picks up whatever is left
+							logger.warn("Failed to watch {}: {}", path, ex.toString());
+						}
+						rescan = true; // files may have landed before the directory was watched
+					} else {
+						pending.add(path);
+					}
+				}
+				key.reset();
+				scheduleSync();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException ex) {
+			// stopped
+		}
+	}
+
+	// (Re)start the quiet-period timer: a burst of events leads to one sync
+	private synchronized void scheduleSync() {
+		if (syncExecutor == null) {
+			return;
+		}
+		if (scheduledSync != null) {
+			scheduledSync.cancel(false);
+		}
+		scheduledSync = syncExecutor.schedule(this::sync, debounceMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void registerTree(Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+						StandardWatchEventKinds.ENTRY_MODIFY);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	// Runs on the sync thread only
+	void sync() {
+		Set<Path> paths = new HashSet<>();
+		if (rescan) {
+			rescan = false;
+			pending.clear();
+			manifest.keySet().forEach(name -> paths.add(folder.resolve(name)));
+			try (Stream<Path> files = Files.walk(folder)) {
+				files.filter(Files::isRegularFile).forEach(paths::add);
+			} catch (IOException ex) {
+				logger.warn("Failed to scan knowledge folder {}", folder, ex);
+			}
+		} else {
+			for (Path path : List.copyOf(pending)) {
+				pending.remove(path);
+				paths.add(path);
+				if (!Files.exists(path)) {
+					// A deleted directory: everything indexed below it goes too
+					String prefix = folder.relativize(path).toString().replace('\\', '/') + "/";
+					manifest.keySet().stream().filter(name -> name.startsWith(prefix))
+						.forEach(name -> paths.add(folder.resolve(name)));
+				}
+			}
+		}
+
+		int changed = 0;
+		for (Path path : paths) {
+			try {
+				changed += syncFile(path) ? 1 : 0;
+			} catch (IOException | RuntimeException ex) {
+				logger.warn("Failed to index {}", path, ex);
+			}
+		}
+		if (changed > 0) {
+			answerCache.invalidateAll();
+			saveManifest();
+			logger.info("Knowledge folder synced: {} files changed, {} indexed", changed, manifest.size());
+		}
+	}
+
+	// Bring one path's chunks up to date; true if the index changed
+	private boolean syncFile(Path path) throws IOException {
+		String name = folder.relativize(path).toString().replace('\\', '/');
+		Entry entry = manifest.get(name);
+		boolean indexable = Files.isRegularFile(path)
+				&& SUPPORTED_TYPES.contains(CustomDocumentLoader.fileType(path))
+				&& !path.getFileName().toString().startsWith(".");
+		if (!indexable) {
+			if (entry == null) {
+				return false;
+			}
+			removeChunks(entry.chunkIds());
+			updateManifest(name, null);
+			logger.info("Removed {} chunks of {}", entry.chunkIds().size(), name);
+			return true;
+		}
+
+		long size = Files.size(path);
+		long modified = Files.getLastModifiedTime(path).toMillis();
+		if (entry != null && entry.size() == size && entry.modifiedMillis() == modified) {
+			return false; // untouched since indexed
+		}
+		String hash = sha256(path);
+		if (entry != null && entry.sha256().equals(hash)) {
+			updateManifest(name, new Entry(size, modified, hash, entry.chunkIds())); // touched, same content
+			return false;
+		}
+
+		int slash = name.indexOf('/');
+		String collection = slash < 0 ? COLLECTION : name.substring(0, slash);
+		IngestionService.Session session = ingestionService.openSession(collection, null);
+		ingestionService.ingest(path, session);
+		// New chunks first, then drop the old ones
+		if (entry != null) {
+			removeChunks(entry.chunkIds());
+		}
+		updateManifest(name, new Entry(size, modified, hash, session.getStoredIds()));
+		logger.info("{} {} ({} chunks)", entry == null ? "Indexed" : "Re-indexed", name, session.getStored());
+		return true;
+	}
+
+	// Cached answers may cite the removed chunks, so they go right away rather than after the whole sync
+	private void removeChunks(List<String> ids) {
+		if (!ids.isEmpty()) {
+			vectorStore.delete(ids);
+			ids.forEach(bm25Index::remove);
+			answerCache.invalidateAll();
+		}
+	}
+
+	private void updateManifest(String name, Entry entry) {
+		synchronized (manifest) {
+			if (entry == null) {
+				manifest.remove(name);
+			} else {
+				manifest.put(name, entry);
+			}
+		}
+	}
+
+	private void loadManifest() throws IOException {
+		if (Files.exists(manifestFile)) {
+			Map<String, Entry> saved = objectMapper.readValue(manifestFile.toFile(), new TypeReference<Map<String, Entry>>() {
+			});
+			synchronized (manifest) {
+				manifest.putAll(saved);
+			}
+		}
+	}
+
+	// Written to a temporary file and moved over the old one, so a crash never leaves half a manifest
+	private void saveManifest() {
+		try {
+			Files.createDirectories(manifestFile.toAbsolutePath().getParent());
+			Path tmp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+			synchronized (manifest) {
+				objectMapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), manifest);
+			}
+			Files.move(tmp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			logger.warn("Failed to save knowledge manifest {}", manifestFile, ex);
+		}
+	}
+
+	private static String sha256(Path path) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(path)) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+}
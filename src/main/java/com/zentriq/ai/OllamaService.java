@@ -1,91 +1,265 @@
 package com.zentriq.ai;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.ollama.OllamaChatModel;
-import org.springframework.ai.ollama.OllamaEmbeddingModel;
-import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import reactor.core.publisher.Flux;
+
 @Service
 public class OllamaService {
 	
+	// OllamaChatModel at runtime; any ChatModel in benchmarks and tests
 	@Autowired
-	OllamaChatModel ollamaModel;
+	ChatModel ollamaModel;
 	
+	// The @Primary caching model, so query embeddings are computed once
 	@Autowired
-	OllamaEmbeddingModel embeddingModel;
+	EmbeddingModel embeddingModel;
 	
 	@Autowired
 	VectorStore vectorStore;
 	
+	@Autowired
+	IngestionService ingestionService;
+	
+	@Autowired
+	ConversationMemory conversationMemory;
+	
+	@Autowired
+	SemanticAnswerCache answerCache;
+	
+	@Autowired
+	HybridRetriever retriever;
+	
+	@Autowired
+	RagMetrics metrics;
+	
+	@Autowired
+	ContextAssembler contextAssembler;
+	
 	// create an object of OllamaChatModel
-	public OllamaService(OllamaChatModel ollamaModel, 
-			             OllamaEmbeddingModel embeddingModel,
-			             VectorStore vectorStore) {
+	public OllamaService(ChatModel ollamaModel, 
+			             EmbeddingModel embeddingModel,
+			             VectorStore vectorStore,
+			             IngestionService ingestionService,
+			             ConversationMemory conversationMemory,
+			             SemanticAnswerCache answerCache,
+			             HybridRetriever retriever,
+			             RagMetrics metrics,
+			             ContextAssembler contextAssembler) {
 		this.ollamaModel = ollamaModel;
 		this.embeddingModel = embeddingModel;
 		this.vectorStore = vectorStore;
+		this.ingestionService = ingestionService;
+		this.conversationMemory = conversationMemory;
+		this.answerCache = answerCache;
+		this.retriever = retriever;
+		this.metrics = metrics;
+		this.contextAssembler = contextAssembler;
 	}
 	
 	public VectorStore getVectorStore() {
         return vectorStore;
     }
 	
-	// Index documents into the vector store
-	public void indexDocuments(List<Document> docs) {
-        vectorStore.add(docs);
+	// Index documents into the vector store, in concurrent embedding batches
+	public IngestionService.Stats indexDocuments(List<Document> docs) {
+        IngestionService.Stats stats = ingestionService.index(docs);
+        answerCache.invalidateAll();
+        return stats;
+    }
+	
+	// Stream a .txt/.pdf/.csv file into the vector store, embedding chunks while parsing continues
+	public IngestionService.Stats indexFile(Path path) throws IOException {
+        try {
+            return ingestionService.ingest(path);
+        } finally {
+            // Even a failed ingestion may have stored some chunks
+            answerCache.invalidateAll();
+        }
     }
 	
 	/**
      * RAG query:
-     * 1. Search vector store
-     * 2. Add retrieved context to the prompt
-     * 3. Ask LLaMA (chat model)
+     * 1. Search vector store and keyword index
+     * 2. Reuse a cached answer to a similar question over the same context, if any
+     * 3. Add retrieved context to the prompt
+     * 4. Ask LLaMA (chat model)
      */
     public String ask(String userQuery) {
-    	// 1. Try to retrieve context from vector store
-        SearchRequest searchRequest = SearchRequest.builder()
-                .query(userQuery)
-                .topK(3)
-                .similarityThreshold(0.2)
-                .build();
-
-        List<Document> similarDocs = vectorStore.similaritySearch(searchRequest);
-
-        StringBuilder context = new StringBuilder();
-        for (Document doc : similarDocs) {
-            context.append(doc.getText()).append("\n---\n");
+        return ask(userQuery, null);
+    }
+
+    /**
+     * Same as {@link #ask(String)}, retrieving context only from chunks whose metadata matches
+     * the filter, e.g. {@link ScopedQuestion#forSource(String) one file}; null searches everything.
+     */
+    public String ask(String userQuery, Filter.Expression filter) {
+        Retrieval retrieval = retrieve(userQuery, filter);
+        String history = conversationMemory.render();
+        String cached = lookupCached(retrieval, history);
+        if (cached != null) {
+            conversationMemory.record(userQuery, cached);
+            return cached;
         }
+        Prompt prompt = buildPrompt(userQuery, retrieval.docs(), history);
+        long start = System.nanoTime();
+        ChatResponse response = ollamaModel.call(prompt);
+        String answer = response.getResult().getOutput().getText();
+        metrics.recordGeneration("call", System.nanoTime() - start, generatedTokens(response, answer));
+        remember(userQuery, retrieval, history, answer);
+        return answer;
+    }
 
-        String fullPrompt;
+    /**
+     * Streaming variant of {@link #ask(String)}: emits the answer token by token
+     * as the chat model produces it (or all at once when it comes from the cache).
+     * Retrieval runs lazily on subscription, so callers decide which thread pays
+     * for the embedding and search.
+     * Only answers streamed to completion are remembered as conversation turns.
+     */
+    public Flux<String> askStream(String userQuery) {
+        return askStream(userQuery, null);
+    }
+
+    // Streaming variant of ask(String, Filter.Expression)
+    public Flux<String> askStream(String userQuery, Filter.Expression filter) {
+        return Flux.defer(() -> {
+            Retrieval retrieval = retrieve(userQuery, filter);
+            String history = conversationMemory.render();
+            String cached = lookupCached(retrieval, history);
+            if (cached != null) {
+                return Flux.just(cached).doOnComplete(() -> conversationMemory.record(userQuery, cached));
+            }
+            Prompt prompt = buildPrompt(userQuery, retrieval.docs(), history);
+            StringBuilder answer = new StringBuilder();
+            AtomicLong tokens = new AtomicLong(); // Ollama streams one token per chunk
+            long start = System.nanoTime();
+            return ollamaModel.stream(prompt)
+                    .mapNotNull(OllamaService::tokenOf)
+                    .filter(token -> !token.isEmpty())
+                    .doOnNext(token -> {
+                        if (tokens.getAndIncrement() == 0) {
+                            metrics.recordFirstToken(System.nanoTime() - start);
+                        }
+                        answer.append(token);
+                    })
+                    .doOnComplete(() -> {
+                        metrics.recordGeneration("stream", System.nanoTime() - start, tokens.get());
+                        remember(userQuery, retrieval, history, answer.toString());
+                    });
+        });
+    }
+
+    // Start a new conversation: earlier turns no longer go into prompts
+    public void resetConversation() {
+        conversationMemory.reset();
+    }
 
-        // 2. Decide which path to take
-        if (!similarDocs.isEmpty()) {
+    public SemanticAnswerCache getAnswerCache() {
+        return answerCache;
+    }
+
+    public RagMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Query embedding and the chunks retrieved with it
+    private record Retrieval(float[] queryEmbedding, List<Document> docs) {
+
+        List<String> contextIds() {
+            return docs.stream().map(Document::getId).toList();
+        }
+    }
+
+    private Retrieval retrieve(String userQuery, Filter.Expression filter) {
+        // Embedded once here for the answer cache; the vector search gets the same vector
+        // from the embedding cache instead of calling Ollama again
+        long start = System.nanoTime();
+        float[] queryEmbedding = embeddingModel.embed(userQuery);
+        long embedded = System.nanoTime();
+        metrics.recordEmbedding(embedded - start);
+        List<Document> docs = retriever.retrieve(userQuery, filter);
+        metrics.recordRetrieval(System.nanoTime() - embedded);
+        return new Retrieval(queryEmbedding, docs);
+    }
+
+    // Cached answers were given without history, so a follow-up ("and the second one?") never reuses one
+    private String lookupCached(Retrieval retrieval, String history) {
+        if (!history.isEmpty()) {
+            return null;
+        }
+        return answerCache.lookup(retrieval.queryEmbedding(), retrieval.contextIds());
+    }
+
+    private void remember(String userQuery, Retrieval retrieval, String history, String answer) {
+        conversationMemory.record(userQuery, answer);
+        // Answers that leaned on earlier turns ("and the second one?") are not reusable on their own
+        if (history.isEmpty()) {
+            answerCache.put(userQuery, retrieval.queryEmbedding(), retrieval.contextIds(), answer);
+        }
+    }
+
+    // Build the full prompt: RAG context if anything relevant is indexed, plain question otherwise,
+    // after the (compacted) conversation so far. The context is deduplicated and kept within its token budget
+    private Prompt buildPrompt(String userQuery, List<Document> similarDocs, String history) {
+        long start = System.nanoTime();
+        String context = contextAssembler.assemble(similarDocs).text();
+
+        if (!history.isEmpty()) {
+            history = "Conversation so far:\n" + history + "\n";
+        }
+
+        // Decide which path to take
+        String text;
+        if (!context.isEmpty()) {
             // ✅ Found context → use RAG
-            fullPrompt = """
+            text = """
                 You are a helpful AI assistant.
                 Use the following context to answer the question.
-                Context:
+                %sContext:
                 %s
                 Question: %s
-                """.formatted(context, userQuery);
+                """.formatted(history, context, userQuery);
         } else {
             // ❌ No useful docs → fallback to LLM knowledge
-            fullPrompt = """
+            text = """
                 You are a helpful AI assistant.
                 Answer the following question using your own knowledge.
-                Question: %s
-                """.formatted(userQuery);
+                %sQuestion: %s
+                """.formatted(history, userQuery);
+        }
+        metrics.recordPrompt(System.nanoTime() - start, context);
+        return new Prompt(text);
+    }
+
+    // Tokens generated as reported by Ollama, estimated from the text when missing
+    private static long generatedTokens(ChatResponse response, String answer) {
+        Usage usage = response.getMetadata() == null ? null : response.getMetadata().getUsage();
+        if (usage != null && usage.getCompletionTokens() != null && usage.getCompletionTokens() > 0) {
+            return usage.getCompletionTokens();
         }
+        return TokenCounter.count(answer);
+    }
 
-        // 3. Call Ollama
-        ChatResponse response = ollamaModel.call(new Prompt(fullPrompt));
-        return response.getResult().getOutput().getText();
+    // Streamed chunks may carry no generation (e.g. the final "done" message)
+    private static String tokenOf(ChatResponse chunk) {
+        if (chunk.getResult() == null || chunk.getResult().getOutput() == null) {
+            return null;
+        }
+        return chunk.getResult().getOutput().getText();
     }
 }
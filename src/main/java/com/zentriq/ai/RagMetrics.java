@@ -0,0 +1,170 @@
+package com.zentriq.ai;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters for each stage of a RAG answer and for ingestion, served by the actuator
+ * ({@code /actuator/metrics/zentriq.rag.generation}, or all at once under {@code /actuator/rag})
+ * and summarised by {@link #snapshot()} for the stats panel.
+ *
+ * Stage timers publish p50/p95/p99. Cache counters read the caches' own statistics, so they cost
+ * nothing on the request path.
+ */
+@Component
+public class RagMetrics {
+
+	/**
+	 * Averages since startup, for display.
+	 */
+	public record Snapshot(long questions, double embeddingMillis, double retrievalMillis, double promptMillis,
+			double generationMillis, double firstTokenMillis, double tokensPerSecond, double contextTokens,
+			double answerCacheHitRate, double embeddingCacheHitRate, long chunksIndexed) {
+	}
+
+	private final MeterRegistry registry;
+	private final SemanticAnswerCache answerCache;
+	private final CachingEmbeddingModel embeddingCache;
+
+	private final Timer embedding;
+	private final Timer retrieval;
+	private final Timer prompt;
+	private final Timer firstToken;
+	private final DistributionSummary contextChars;
+	private final DistributionSummary contextTokens;
+	private final DistributionSummary tokensPerSecond;
+
+	public RagMetrics(MeterRegistry registry, SemanticAnswerCache answerCache, EmbeddingModel embeddingModel) {
+		this.registry = registry;
+		this.answerCache = answerCache;
+		this.embeddingCache = embeddingModel instanceof CachingEmbeddingModel caching ? caching : null;
+
+		embedding = stageTimer("zentriq.rag.embedding", "Embedding the question");
+		retrieval = stageTimer("zentriq.rag.retrieval", "Vector and keyword search for context chunks");
+		prompt = stageTimer("zentriq.rag.prompt", "Rendering history and context into the prompt");
+		firstToken = stageTimer("zentriq.rag.first.token", "Time to the first streamed token");
+		contextChars = DistributionSummary.builder("zentriq.rag.context.chars")
+			.description("Retrieved context put in the prompt")
+			.baseUnit("chars")
+			.register(registry);
+		contextTokens = DistributionSummary.builder("zentriq.rag.context.tokens")
+			.description("Retrieved context put in the prompt, estimated")
+			.baseUnit("tokens")
+			.publishPercentiles(0.5, 0.95)
+			.register(registry);
+		tokensPerSecond = DistributionSummary.builder("zentriq.rag.generation.rate")
+			.description("Generation speed of the chat model")
+			.baseUnit("tokens/s")
+			.register(registry);
+
+		FunctionCounter.builder("zentriq.answer.cache.lookups", answerCache, SemanticAnswerCache::getHits)
+			.tag("result", "hit").register(registry);
+		FunctionCounter.builder("zentriq.answer.cache.lookups", answerCache, SemanticAnswerCache::getMisses)
+			.tag("result", "miss").register(registry);
+		Gauge.builder("zentriq.answer.cache.size", answerCache, SemanticAnswerCache::size).register(registry);
+		if (embeddingCache != null) {
+			FunctionCounter.builder("zentriq.embedding.cache.lookups", embeddingCache, CachingEmbeddingModel::getMemoryHits)
+				.tag("result", "memory").register(registry);
+			FunctionCounter.builder("zentriq.embedding.cache.lookups", embeddingCache, CachingEmbeddingModel::getDiskHits)
+				.tag("result", "disk").register(registry);
+			FunctionCounter.builder("zentriq.embedding.cache.lookups", embeddingCache, CachingEmbeddingModel::getMisses)
+				.tag("result", "miss").register(registry);
+		}
+	}
+
+	public void recordEmbedding(long nanos) {
+		embedding.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	public void recordRetrieval(long nanos) {
+		retrieval.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	// Prompt rendering time and the size of the retrieved context in it
+	public void recordPrompt(long nanos, CharSequence context) {
+		prompt.record(nanos, TimeUnit.NANOSECONDS);
+		contextChars.record(context.length());
+		contextTokens.record(TokenCounter.count(context));
+	}
+
+	public void recordFirstToken(long nanos) {
+		firstToken.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	// mode: "call" or "stream"
+	public void recordGeneration(String mode, long nanos, long tokens) {
+		generationTimer(mode).record(nanos, TimeUnit.NANOSECONDS);
+		if (nanos > 0 && tokens > 0) {
+			tokensPerSecond.record(tokens * 1e9 / nanos);
+		}
+	}
+
+	// One file ingestion, keyed by CustomDocumentLoader.fileType; outcome: "success", "failure" or "cancelled"
+	public void recordIngestion(String fileType, long nanos, int chunks, String outcome) {
+		String type = switch (fileType) {
+			case "pdf", "csv", "txt" -> fileType;
+			default -> "other"; // keeps the tag set bounded
+		};
+		Timer.builder("zentriq.ingest.duration")
+			.description("Parsing, chunking, embedding and storing one file")
+			.tag("type", type)
+			.tag("outcome", outcome)
+			.register(registry)
+			.record(nanos, TimeUnit.NANOSECONDS);
+		chunkCounter(type).increment(chunks);
+	}
+
+	public Snapshot snapshot() {
+		Timer call = generationTimer("call");
+		Timer stream = generationTimer("stream");
+		long generations = call.count() + stream.count();
+		double generationMillis = generations == 0 ? 0
+				: (call.totalTime(TimeUnit.MILLISECONDS) + stream.totalTime(TimeUnit.MILLISECONDS)) / generations;
+		double embeddingHitRate = 0;
+		if (embeddingCache != null) {
+			long hits = embeddingCache.getMemoryHits() + embeddingCache.getDiskHits();
+			long total = hits + embeddingCache.getMisses();
+			embeddingHitRate = total == 0 ? 0 : (double) hits / total;
+		}
+		long chunks = 0;
+		for (Counter counter : registry.find("zentriq.ingest.chunks").counters()) {
+			chunks += (long) counter.count();
+		}
+		return new Snapshot(embedding.count(), embedding.mean(TimeUnit.MILLISECONDS),
+				retrieval.mean(TimeUnit.MILLISECONDS), prompt.mean(TimeUnit.MILLISECONDS), generationMillis,
+				firstToken.mean(TimeUnit.MILLISECONDS), tokensPerSecond.mean(), contextTokens.mean(),
+				answerCache.getHitRate(), embeddingHitRate, chunks);
+	}
+
+	private Timer stageTimer(String name, String description) {
+		return Timer.builder(name)
+			.description(description)
+			.publishPercentiles(0.5, 0.95, 0.99)
+			.register(registry);
+	}
+
+	// Looked up per call; Micrometer returns the already registered meter
+	private Timer generationTimer(String mode) {
+		return Timer.builder("zentriq.rag.generation")
+			.description("Chat model answer, first request byte to last token")
+			.tag("mode", mode)
+			.publishPercentiles(0.5, 0.95, 0.99)
+			.register(registry);
+	}
+
+	private Counter chunkCounter(String type) {
+		return Counter.builder("zentriq.ingest.chunks")
+			.description("Chunks embedded and stored")
+			.tag("type", type)
+			.register(registry);
+	}
+}
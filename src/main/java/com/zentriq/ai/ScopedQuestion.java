@@ -0,0 +1,50 @@
+package com.zentriq.ai;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+/**
+ * A question limited to one source: a message starting with {@code @report.pdf} (or
+ * {@code @"annual report.pdf"} for names with spaces) is answered from that file's chunks only.
+ * The name may also be a collection, e.g. {@code @attachments} or a knowledge subfolder.
+ *
+ * @param source the file or collection name, null when the whole index is searched
+ * @param filter the matching retrieval filter, null when the whole index is searched
+ */
+public record ScopedQuestion(String question, String source, Filter.Expression filter) {
+
+	public static ScopedQuestion parse(String message) {
+		String text = message.strip();
+		if (!text.startsWith("@") || text.length() < 2) {
+			return new ScopedQuestion(text, null, null);
+		}
+		int end;
+		String source;
+		if (text.charAt(1) == '"') {
+			end = text.indexOf('"', 2);
+			if (end < 0) {
+				return new ScopedQuestion(text, null, null);
+			}
+			source = text.substring(2, end);
+			end++;
+		} else {
+			end = 1;
+			while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+				end++;
+			}
+			source = text.substring(1, end);
+		}
+		String question = text.substring(end).strip();
+		if (source.isEmpty() || question.isEmpty()) {
+			return new ScopedQuestion(text, null, null);
+		}
+		return new ScopedQuestion(question, source, forSource(source));
+	}
+
+	// Chunks of the file, or of the collection, with this name
+	public static Filter.Expression forSource(String source) {
+		FilterExpressionBuilder b = new FilterExpressionBuilder();
+		return b.or(b.eq(CustomDocumentLoader.FILENAME_KEY, source), b.eq(CustomDocumentLoader.COLLECTION_KEY, source))
+			.build();
+	}
+}
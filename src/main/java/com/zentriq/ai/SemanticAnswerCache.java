@@ -0,0 +1,145 @@
+package com.zentriq.ai;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.zentriq.vectorstore.MappedVectorStore;
+
+/**
+ * Answers to earlier questions, found by meaning rather than by exact text.
+ *
+ * A lookup compares the question's embedding with the stored ones and accepts the closest entry
+ * above {@code similarity} that was answered from exactly the same context chunks as retrieval
+ * returned for the new question: the same question over changed documents must be answered again. Entries expire
+ * after {@code ttlMinutes}, the least recently used are evicted beyond {@code maxEntries}, and
+ * everything is dropped when new chunks are indexed.
+ */
+@Service
+public class SemanticAnswerCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(SemanticAnswerCache.class);
+
+	private record Entry(String question, float[] embedding, List<String> contextIds, String answer, long createdMillis) {
+	}
+
+	private final double similarity;
+	private final int maxEntries;
+	private final long ttlMillis;
+	private final LongSupplier clock;
+
+	// Keyed by question text: asking the exact same question again replaces the entry
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong staleContext = new AtomicLong();
+
+	@Autowired
+	public SemanticAnswerCache(@Value("${zentriq.answer-cache.similarity:0.95}") double similarity,
+			                   @Value("${zentriq.answer-cache.max-entries:500}") int maxEntries,
+			                   @Value("${zentriq.answer-cache.ttl-minutes:1440}") long ttlMinutes) {
+		this(similarity, maxEntries, ttlMinutes, System::currentTimeMillis);
+	}
+
+	SemanticAnswerCache(double similarity, int maxEntries, long ttlMinutes, LongSupplier clock) {
+		this.similarity = similarity;
+		this.maxEntries = maxEntries;
+		this.ttlMillis = ttlMinutes * 60_000;
+		this.clock = clock;
+	}
+
+	/**
+	 * The stored answer for a question close enough to this one and retrieved with the same
+	 * context chunks, or null.
+	 */
+	public String lookup(float[] queryEmbedding, List<String> contextIds) {
+		float[] query = MappedVectorStore.normalize(queryEmbedding);
+		Entry best = null;
+		double bestScore = similarity;
+		boolean similar = false;
+		synchronized (this) {
+			long now = clock.getAsLong();
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (iterator.hasNext()) {
+				Entry entry = iterator.next();
+				if (now - entry.createdMillis() > ttlMillis) {
+					iterator.remove();
+					continue;
+				}
+				// An entry embedded with another model never matches
+				if (entry.embedding().length != query.length) {
+					continue;
+				}
+				double score = MappedVectorStore.dot(query, entry.embedding());
+				if (score < similarity) {
+					continue;
+				}
+				similar = true;
+				if (score >= bestScore && entry.contextIds().equals(contextIds)) {
+					best = entry;
+					bestScore = score;
+				}
+			}
+			if (best != null) {
+				entries.get(best.question()); // refresh LRU position
+				hits.incrementAndGet();
+				logger.debug("Answer cache hit ({}) for a question similar to \"{}\"", bestScore, best.question());
+				return best.answer();
+			}
+		}
+		if (similar) {
+			staleContext.incrementAndGet();
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	public synchronized void put(String question, float[] queryEmbedding, List<String> contextIds, String answer) {
+		entries.put(question, new Entry(question, MappedVectorStore.normalize(queryEmbedding), List.copyOf(contextIds),
+				answer, clock.getAsLong()));
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (entries.size() > maxEntries) {
+			eldest.next();
+			eldest.remove();
+		}
+	}
+
+	// Called when the index changes: any stored answer may now be incomplete
+	public synchronized void invalidateAll() {
+		if (!entries.isEmpty()) {
+			logger.info("Dropping {} cached answers after indexing", entries.size());
+			entries.clear();
+		}
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	// Misses where a similar question was cached but retrieval now returns different chunks
+	public long getStaleContextMisses() {
+		return staleContext.get();
+	}
+
+	public double getHitRate() {
+		long total = hits.get() + misses.get();
+		return total == 0 ? 0 : (double) hits.get() / total;
+	}
+}
@@ -0,0 +1,110 @@
+package com.zentriq.ai;
+
+/**
+ * Cheap approximation of LLM token counts, without loading a tokenizer.
+ *
+ * BPE vocabularies such as llama3's encode common English words as one token and split longer
+ * or rarer words every ~4 characters, so each run of letters/digits counts as
+ * {@code ceil(length / 4)} tokens and every other non-space character as one token.
+ * Works directly on a {@link CharSequence} range, so callers never need to copy substrings.
+ */
+public final class TokenCounter {
+
+	private static final int CHARS_PER_TOKEN = 4;
+
+	private TokenCounter() {
+	}
+
+	public static int count(CharSequence text) {
+		return count(text, 0, text.length());
+	}
+
+	// Tokens in text[from, to)
+	public static int count(CharSequence text, int from, int to) {
+		int tokens = 0;
+		int i = from;
+		while (i < to) {
+			char c = text.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				int wordStart = i;
+				while (i < to && Character.isLetterOrDigit(text.charAt(i))) {
+					i++;
+				}
+				tokens += (i - wordStart + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+			} else {
+				if (!Character.isWhitespace(c)) {
+					tokens++;
+				}
+				i++;
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Offset reached after consuming at most {@code maxTokens} tokens from {@code from},
+	 * never cutting a word in half and never passing {@code limit}.
+	 */
+	public static int advance(CharSequence text, int from, int limit, int maxTokens) {
+		int tokens = 0;
+		int i = from;
+		while (i < limit) {
+			char c = text.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				int end = i;
+				while (end < limit && Character.isLetterOrDigit(text.charAt(end))) {
+					end++;
+				}
+				int wordTokens = (end - i + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+				if (tokens + wordTokens > maxTokens) {
+					// A single over-long word still has to make progress
+					return tokens == 0 ? Math.min(limit, i + maxTokens * CHARS_PER_TOKEN) : i;
+				}
+				tokens += wordTokens;
+				i = end;
+			} else {
+				if (!Character.isWhitespace(c)) {
+					if (tokens + 1 > maxTokens) {
+						return i;
+					}
+					tokens++;
+				}
+				i++;
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Mirror of {@link #advance}: the start of the earliest whole token such that
+	 * {@code text[result, to)} holds at most {@code maxTokens} tokens, never before {@code limit}.
+	 */
+	public static int retreat(CharSequence text, int to, int limit, int maxTokens) {
+		int tokens = 0;
+		int i = to;
+		int start = to;
+		while (i > limit) {
+			char c = text.charAt(i - 1);
+			if (Character.isWhitespace(c)) {
+				i--;
+				continue;
+			}
+			if (Character.isLetterOrDigit(c)) {
+				int wordStart = i;
+				while (wordStart > limit && Character.isLetterOrDigit(text.charAt(wordStart - 1))) {
+					wordStart--;
+				}
+				tokens += (i - wordStart + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+				i = wordStart;
+			} else {
+				tokens++;
+				i--;
+			}
+			if (tokens > maxTokens) {
+				break;
+			}
+			start = i;
+		}
+		return start;
+	}
+}
@@ -0,0 +1,31 @@
+package com.zentriq.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zentriq.ai.BoundaryAwareChunker;
+import com.zentriq.ai.Chunker;
+import com.zentriq.ai.FixedSizeChunker;
+
+@Configuration
+public class ChunkingConfig {
+
+    // Characters per chunk of the legacy "fixed" strategy
+    private static final int FIXED_CHUNK_SIZE = 500;
+
+    // zentriq.chunk.strategy: "boundary" (token-sized, cut at paragraph/sentence ends, optionally
+    // overlapping, default) or "fixed" (every 500 characters, no overlap)
+    @Bean
+    public Chunker chunker(@Value("${zentriq.chunk.strategy:boundary}") String strategy,
+                           @Value("${zentriq.chunk.max-tokens:128}") int maxTokens,
+                           @Value("${zentriq.chunk.overlap-tokens:0}") int overlapTokens) {
+        if ("fixed".equals(strategy)) {
+            return new FixedSizeChunker(FIXED_CHUNK_SIZE);
+        }
+        if (!"boundary".equals(strategy)) {
+            throw new IllegalArgumentException("Unknown zentriq.chunk.strategy: " + strategy);
+        }
+        return new BoundaryAwareChunker(maxTokens, overlapTokens);
+    }
+}
@@ -0,0 +1,24 @@
+package com.zentriq.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.zentriq.ai.RagMetrics;
+
+// GET /actuator/rag: the stats panel's numbers; per-stage percentiles are under /actuator/metrics/zentriq.*
+@Component
+@Endpoint(id = "rag")
+public class RagEndpoint {
+
+    private final RagMetrics metrics;
+
+    public RagEndpoint(RagMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @ReadOperation
+    public RagMetrics.Snapshot stats() {
+        return metrics.snapshot();
+    }
+}
@@ -1,16 +1,65 @@
 package com.zentriq.config;
 
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
 import org.springframework.ai.vectorstore.VectorStore;
 
+import com.zentriq.ai.CachingEmbeddingModel;
+import com.zentriq.ai.CustomDocumentLoader;
+import com.zentriq.vectorstore.MappedVectorStore;
+import com.zentriq.vectorstore.QuotingSimpleVectorStore;
+
 @Configuration
 public class VectorStoreConfig {
 
+    // Every EmbeddingModel consumer (vector store, query embedding) goes through the cache;
+    // Spring closes its file on shutdown
+    @Bean
+    @Primary
+    public CachingEmbeddingModel cachingEmbeddingModel(OllamaEmbeddingModel ollamaEmbeddingModel,
+                                                       @Value("${spring.ai.ollama.embedding.options.model}") String model,
+                                                       @Value("${zentriq.embedding-cache.max-entries:10000}") int maxEntries,
+                                                       @Value("${zentriq.embedding-cache.path:}") String path,
+                                                       @Value("${zentriq.embedding-cache.max-disk-entries:100000}") int maxDiskEntries) {
+        return new CachingEmbeddingModel(ollamaEmbeddingModel, model, maxEntries,
+                path.isBlank() ? null : Path.of(path), maxDiskEntries);
+    }
+
+    // zentriq.vectorstore.type: "mapped" (persistent, exact scan, default), "hnsw" (persistent,
+    // approximate graph search), "int8"/"binary" (persistent, scan of quantized codes with
+    // full-precision rescoring) or "simple" (in-memory, lost on restart)
     @Bean
-    public VectorStore vectorStore(EmbeddingModel embeddingModel) {
-        return SimpleVectorStore.builder(embeddingModel).build();
+    public VectorStore vectorStore(EmbeddingModel embeddingModel,
+                                   @Value("${zentriq.vectorstore.type:mapped}") String type,
+                                   @Value("${zentriq.vectorstore.path:${user.home}/.zentriq/index}") String path,
+                                   @Value("${zentriq.vectorstore.hnsw.m:16}") int m,
+                                   @Value("${zentriq.vectorstore.hnsw.ef-construction:200}") int efConstruction,
+                                   @Value("${zentriq.vectorstore.hnsw.ef-search:64}") int efSearch,
+                                   @Value("${zentriq.vectorstore.quantized.oversample:10}") int oversample,
+                                   @Value("${zentriq.vectorstore.parallelism:0}") int parallelism) {
+        if ("simple".equals(type)) {
+            return new QuotingSimpleVectorStore(embeddingModel);
+        }
+        // Questions limited to one file or collection scan only that partition
+        MappedVectorStore.Builder builder = MappedVectorStore.builder(embeddingModel)
+                .directory(Path.of(path))
+                .parallelism(parallelism)
+                .partitionBy(CustomDocumentLoader.FILENAME_KEY, CustomDocumentLoader.COLLECTION_KEY);
+        if ("hnsw".equals(type)) {
+            builder.hnsw(m, efConstruction, efSearch);
+        } else if ("int8".equals(type)) {
+            builder.int8(oversample);
+        } else if ("binary".equals(type)) {
+            builder.binary(oversample);
+        } else if (!"mapped".equals(type)) {
+            throw new IllegalArgumentException("Unknown zentriq.vectorstore.type: " + type);
+        }
+        return builder.build();
     }
 }
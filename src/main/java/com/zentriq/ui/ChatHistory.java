@@ -0,0 +1,219 @@
+package com.zentriq.ui;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.collections.ObservableListBase;
+
+/**
+ * Chat messages as an observable list whose memory use does not grow with the conversation.
+ * The newest {@code window} messages live in a ring buffer and can still be updated (streamed
+ * answers); older ones are appended to a spill file with a fixed-width offset index and read
+ * back, through a small cache, only when scrolled into view. Replacing a spilled message appends
+ * its new encoding and repoints the index, which is meant for the rare answer that finishes after
+ * scrolling out of the window. Only appends, updates and clearing are supported, which is all
+ * the chat needs. The spill files are temporary and
+ * emptied on {@link #clear()}. Not thread-safe: use it from the FX thread like any list backing
+ * a control.
+ */
+public class ChatHistory extends ObservableListBase<ChatMessage> {
+
+    // Spilled messages kept decoded, enough to cover a screen of scrolling
+    private static final int READ_CACHE_SIZE = 256;
+
+    private final ChatMessage[] ring;
+    private int head;
+    private int inMemory;
+    private int spilled;
+
+    // Encoded messages back to back, and the start and end offset of each one as fixed-width longs
+    private RandomAccessFile spillData;
+    private RandomAccessFile spillIndex;
+
+    private final Map<Integer, ChatMessage> readCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ChatMessage> eldest) {
+            return size() > READ_CACHE_SIZE;
+        }
+    };
+
+    public ChatHistory(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        this.ring = new ChatMessage[window];
+    }
+
+    @Override
+    public ChatMessage get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (index >= spilled) {
+            return ring[slot(index)];
+        }
+        ChatMessage message = readCache.get(index);
+        if (message == null) {
+            message = readSpilled(index);
+            readCache.put(index, message);
+        }
+        return message;
+    }
+
+    @Override
+    public int size() {
+        return spilled + inMemory;
+    }
+
+    // Whether the message is still in the ring, where set() is cheap enough for every streamed token
+    public boolean isInMemory(int index) {
+        return index >= spilled && index < size();
+    }
+
+    @Override
+    public boolean add(ChatMessage message) {
+        if (inMemory == ring.length) {
+            spill(ring[head]);
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            inMemory--;
+            spilled++;
+        }
+        int index = size();
+        ring[slot(index)] = message;
+        inMemory++;
+        beginChange();
+        nextAdd(index, index + 1);
+        endChange();
+        return true;
+    }
+
+    @Override
+    public ChatMessage set(int index, ChatMessage message) {
+        ChatMessage old = get(index);
+        if (isInMemory(index)) {
+            ring[slot(index)] = message;
+        } else {
+            writeSpilled(index, message);
+            readCache.put(index, message);
+        }
+        beginChange();
+        nextSet(index, old);
+        endChange();
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        int size = size();
+        if (size == 0) {
+            return;
+        }
+        // Listeners get a remove change without the removed messages being read back from disk
+        beginChange();
+        nextRemove(0, Collections.nCopies(size, (ChatMessage) null));
+        Arrays.fill(ring, null);
+        head = 0;
+        inMemory = 0;
+        spilled = 0;
+        readCache.clear();
+        truncateSpill();
+        endChange();
+    }
+
+    private int slot(int index) {
+        return (head + index - spilled) % ring.length;
+    }
+
+    private void spill(ChatMessage message) {
+        if (spillData == null) {
+            try {
+                spillData = openTempFile(".bin");
+                spillIndex = openTempFile(".idx");
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to spill chat history", ex);
+            }
+        }
+        writeSpilled(spilled, message);
+    }
+
+    // Appends the message and points its index entry at it; a replaced encoding stays as dead bytes
+    private void writeSpilled(int index, ChatMessage message) {
+        try {
+            long start = spillData.length();
+            spillData.seek(start);
+            spillData.write(encode(message));
+            spillIndex.seek((long) index * 2 * Long.BYTES);
+            spillIndex.writeLong(start);
+            spillIndex.writeLong(spillData.length());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to spill chat history", ex);
+        }
+    }
+
+    private ChatMessage readSpilled(int index) {
+        try {
+            spillIndex.seek((long) index * 2 * Long.BYTES);
+            long start = spillIndex.readLong();
+            long end = spillIndex.readLong();
+            byte[] bytes = new byte[(int) (end - start)];
+            spillData.seek(start);
+            spillData.readFully(bytes);
+            return decode(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to read chat history", ex);
+        }
+    }
+
+    private void truncateSpill() {
+        try {
+            if (spillData != null) {
+                spillData.setLength(0);
+                spillIndex.setLength(0);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to clear chat history", ex);
+        }
+    }
+
+    private static RandomAccessFile openTempFile(String suffix) throws IOException {
+        Path file = Files.createTempFile("zentriq-chat-", suffix);
+        file.toFile().deleteOnExit();
+        return new RandomAccessFile(file.toFile(), "rw");
+    }
+
+    private static byte[] encode(ChatMessage message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + message.text().length());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(message.role().ordinal());
+        out.writeLong(message.timestamp().getEpochSecond());
+        out.writeInt(message.timestamp().getNano());
+        out.writeInt(message.tokens());
+        out.writeLong(message.latencyMillis());
+        out.write(message.text().getBytes(StandardCharsets.UTF_8));
+        return bytes.toByteArray();
+    }
+
+    private static ChatMessage decode(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        ChatMessage.Role role = ChatMessage.Role.values()[in.readByte()];
+        Instant timestamp = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        int tokens = in.readInt();
+        long latencyMillis = in.readLong();
+        String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        return new ChatMessage(role, timestamp, text, tokens, latencyMillis);
+    }
+}
@@ -0,0 +1,63 @@
+package com.zentriq.ui;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * One entry of the chat history.
+ * {@code tokens} is the size of the text in tokens (estimated for the user's messages, streamed
+ * for answers) and {@code latencyMillis} the time an answer took to complete, 0 while streaming.
+ */
+public record ChatMessage(Role role, Instant timestamp, String text, int tokens, long latencyMillis) {
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm").withZone(ZoneId.systemDefault());
+
+    public enum Role {
+        USER("user"),
+        ASSISTANT("bot"),
+        SYSTEM("system");
+
+        private final String styleClass;
+
+        Role(String styleClass) {
+            this.styleClass = styleClass;
+        }
+
+        // Style class of the message bubble in styles/chat.css
+        public String styleClass() {
+            return styleClass;
+        }
+    }
+
+    public static ChatMessage user(String text, int tokens) {
+        return new ChatMessage(Role.USER, Instant.now(), text, tokens, 0);
+    }
+
+    public static ChatMessage assistant(String text) {
+        return new ChatMessage(Role.ASSISTANT, Instant.now(), text, 0, 0);
+    }
+
+    // Notices from the app itself (file loaded, errors), shown without a sender
+    public static ChatMessage system(String text) {
+        return new ChatMessage(Role.SYSTEM, Instant.now(), text, 0, 0);
+    }
+
+    public ChatMessage withText(String newText) {
+        return new ChatMessage(role, timestamp, newText, tokens, latencyMillis);
+    }
+
+    public ChatMessage withStats(int newTokens, long newLatencyMillis) {
+        return new ChatMessage(role, timestamp, text, newTokens, newLatencyMillis);
+    }
+
+    // Text as shown in the chat list, with the sender and time
+    public String display() {
+        return switch (role) {
+            case USER -> "🟢 [" + TIME_FORMAT.format(timestamp) + "] You: " + text;
+            case ASSISTANT -> "🤖 [" + TIME_FORMAT.format(timestamp) + "] Zentriq: " + text;
+            case SYSTEM -> text;
+        };
+    }
+}
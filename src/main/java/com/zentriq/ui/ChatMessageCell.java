@@ -0,0 +1,138 @@
+package com.zentriq.ui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+import javafx.beans.value.ObservableDoubleValue;
+import javafx.scene.control.Button;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.Tooltip;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+
+/**
+ * Renders one chat message as a wrapped text bubble, with token count and latency under answers
+ * and a cancel button under answers still queued or streaming.
+ * Styling comes from the role's style class in {@code /styles/chat.css}, switched only when the
+ * role of the message shown by a recycled cell changes, and wrapped heights are looked up in a shared
+ * {@link HeightCache} so scrolling through long conversations does not re-run text layout.
+ */
+public class ChatMessageCell extends ListCell<ChatMessage> {
+
+    // Space taken by list padding and bubble insets around the text
+    static final double HORIZONTAL_INSETS = 80;
+
+    private final Text text = new Text();
+    private final Text stats = new Text();
+    private final Button cancel = new Button("■ Stop");
+    private final VBox container = new VBox(2, text, stats, cancel);
+    private final ObservableDoubleValue wrapWidth;
+    private final HeightCache heightCache;
+    private final IntPredicate pending;
+    private String styleClass;
+
+    /**
+     * @param pending whether the answer at a list index is still queued or streaming
+     * @param onCancel cancels the request answering at a list index
+     */
+    public ChatMessageCell(ObservableDoubleValue wrapWidth, HeightCache heightCache, IntPredicate pending,
+                           IntConsumer onCancel) {
+        this.wrapWidth = wrapWidth;
+        this.heightCache = heightCache;
+        this.pending = pending;
+        text.getStyleClass().add("chat-text");
+        text.wrappingWidthProperty().bind(wrapWidth);
+        stats.getStyleClass().add("chat-stats");
+        stats.managedProperty().bind(stats.visibleProperty());
+        cancel.getStyleClass().add("chat-cancel");
+        cancel.setTooltip(new Tooltip("Cancel this request"));
+        cancel.setOnAction(e -> onCancel.accept(getIndex()));
+        cancel.managedProperty().bind(cancel.visibleProperty());
+        container.getStyleClass().add("chat-bubble");
+    }
+
+    @Override
+    protected void updateItem(ChatMessage item, boolean empty) {
+        super.updateItem(item, empty);
+        setText(null);
+        if (empty || item == null) {
+            setGraphic(null);
+            return;
+        }
+        text.setText(item.display());
+        boolean answered = item.role() == ChatMessage.Role.ASSISTANT && item.latencyMillis() > 0;
+        stats.setVisible(answered);
+        if (answered) {
+            stats.setText(String.format("%d tokens · %.1f s", item.tokens(), item.latencyMillis() / 1000.0));
+        }
+        cancel.setVisible(item.role() == ChatMessage.Role.ASSISTANT && pending.test(getIndex()));
+        String kind = item.role().styleClass();
+        if (!kind.equals(styleClass)) {
+            container.getStyleClass().remove(styleClass);
+            container.getStyleClass().add(kind);
+            styleClass = kind;
+        }
+        setGraphic(container);
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        ChatMessage item = getItem();
+        // Until the cell is in a scene its CSS (fonts, padding) is not applied, so the height is not final
+        // An answer still streaming changes with every token: lay it out without caching
+        if (isEmpty() || item == null || getScene() == null || pending.test(getIndex())) {
+            return super.computePrefHeight(width);
+        }
+        return heightCache.get(getIndex(), item, wrapWidth.get(), () -> super.computePrefHeight(width));
+    }
+
+    /**
+     * LRU map from list index to laid-out cell height, shared by all cells of a list. Each entry
+     * remembers the wrapping width and a fingerprint of the message (text length and hash, whether
+     * stats are shown) it was computed for, not the message itself, so the cache holds no text and
+     * has at most one entry per row. Indexes are stable because the chat only appends or clears.
+     */
+    public static final class HeightCache {
+
+        private record Height(double width, int length, int hash, boolean answered, double height) {
+
+            boolean matches(ChatMessage message, double width) {
+                return this.width == width && length == message.text().length() && hash == message.text().hashCode()
+                        && answered == (message.latencyMillis() > 0);
+            }
+        }
+
+        private final Map<Integer, Height> heights;
+
+        public HeightCache(int maxRows) {
+            this.heights = new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Height> eldest) {
+                    return size() > maxRows;
+                }
+            };
+        }
+
+        double get(int index, ChatMessage message, double width, DoubleSupplier compute) {
+            Height cached = heights.get(index);
+            if (cached != null && cached.matches(message, width)) {
+                return cached.height();
+            }
+            double height = compute.getAsDouble();
+            heights.put(index, new Height(width, message.text().length(), message.text().hashCode(),
+                    message.latencyMillis() > 0, height));
+            return height;
+        }
+
+        int size() {
+            return heights.size();
+        }
+
+        public void clear() {
+            heights.clear();
+        }
+    }
+}
@@ -1,6 +1,13 @@
 package com.zentriq.ui;
 
-import javafx.collections.FXCollections;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -11,24 +18,30 @@ import javafx.scene.layout.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Text;
 import javafx.stage.FileChooser;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.io.File;
-import java.io.IOException;
 import java.nio.file.Files;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.springframework.ai.document.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import com.zentriq.ai.CustomDocumentLoader;
+import com.zentriq.ai.ChatRequestExecutor;
+import com.zentriq.ai.IngestionJobService;
 import com.zentriq.ai.OllamaService;
+import com.zentriq.ai.RagMetrics;
+import com.zentriq.ai.ScopedQuestion;
+import com.zentriq.ai.TokenCounter;
 
 /**
  * Handles the main chat window UI and its functionality.
@@ -39,18 +52,40 @@ public class ChatPage {
 
     private final DesktopChatApp app;
     private VBox chatPane;
-    private ListView<String> chatListView;
-    private ObservableList<String> chatMessages = FXCollections.observableArrayList();
+    private ListView<ChatMessage> chatListView;
+    // Newest messages in memory, older ones spilled to disk
+    private final ChatHistory chatHistory;
     private TextField messageInput;
     private Button sendButton;
     private Button attachButton;
+    private Label statsPanel;
+    // One progress row per file being indexed
+    private VBox jobsPane;
+    
+    // Text wrapping width shared by all chat cells, and their laid-out heights per row
+    private final DoubleProperty wrapWidth = new SimpleDoubleProperty();
+    private final ChatMessageCell.HeightCache heightCache = new ChatMessageCell.HeightCache(4_096);
+    private final PauseTransition resizeDebounce = new PauseTransition(Duration.millis(150));
+    // Refreshes the stats panel while it is shown
+    private final Timeline statsRefresh = new Timeline(new KeyFrame(Duration.seconds(2), e -> refreshStats()));
     
     // Assume RagService is autowired or passed into ChatPage
     private final OllamaService ollamaService;
+    private final ChatRequestExecutor chatRequestExecutor;
+    private final IngestionJobService ingestionJobService;
+    
+    // Requests still queued or streaming, by the index of the message they answer into
+    private final Map<Integer, CompletableFuture<String>> activeRequests = new HashMap<>();
+    // Bumped when the chat is cleared, so late answers from before can tell their message is gone
+    private int chatGeneration;
     
-    public ChatPage(DesktopChatApp app, OllamaService ollamaService) {
+    public ChatPage(DesktopChatApp app, OllamaService ollamaService, ChatRequestExecutor chatRequestExecutor,
+                    IngestionJobService ingestionJobService, int historyWindow) {
         this.app = app;
+        this.chatHistory = new ChatHistory(historyWindow);
         this.ollamaService = ollamaService;
+        this.chatRequestExecutor = chatRequestExecutor;
+        this.ingestionJobService = ingestionJobService;
         createChatPane(); // Build the UI on initialization
     }
 
@@ -58,17 +93,22 @@ public class ChatPage {
         return chatPane;
     }
     
-    public ObservableList<String> getChatMessages() {
-        return chatMessages;
+    public ObservableList<ChatMessage> getChatMessages() {
+        return chatHistory;
     }
     
     public void clearChatMessages() {
-        chatMessages.clear();
+        List.copyOf(activeRequests.values()).forEach(request -> request.cancel(true));
+        activeRequests.clear();
+        chatGeneration++;
+        chatHistory.clear();
+        heightCache.clear();
+        ollamaService.resetConversation();
     }
     
-    public void addMessage(String message) {
-        chatMessages.add(message);
-        chatListView.scrollTo(chatMessages.size() - 1);
+    public void addMessage(ChatMessage message) {
+        chatHistory.add(message);
+        chatListView.scrollTo(chatHistory.size() - 1);
     }
 
     /**
@@ -76,6 +116,7 @@ public class ChatPage {
      */
     private void createChatPane() {
         chatPane = new VBox(0);
+        chatPane.getStylesheets().add(getClass().getResource("/styles/chat.css").toExternalForm());
         chatPane.setStyle(
             "-fx-background-color: linear-gradient(to bottom, rgba(20, 30, 70, 0.95), rgba(15, 25, 50, 0.98));" +
             "-fx-background-radius: 20px;" +
@@ -109,86 +150,38 @@ public class ChatPage {
         logoutButton.setStyle("-fx-background-color: rgba(255,255,255,0.1); -fx-text-fill: rgba(255,255,255,0.8); -fx-border-color: rgba(255,255,255,0.2); -fx-border-radius: 15px; -fx-background-radius: 15px; -fx-padding: 8px 16px; -fx-cursor: hand; -fx-font-size: 12px; -fx-border-width: 1px;");
         logoutButton.setOnAction(e -> app.logout());
         
-        controlButtons.getChildren().addAll(logoutButton);
+        Button statsButton = new Button("Stats");
+        statsButton.setStyle("-fx-background-color: rgba(255,255,255,0.1); -fx-text-fill: rgba(255,255,255,0.8); -fx-border-color: rgba(255,255,255,0.2); -fx-border-radius: 15px; -fx-background-radius: 15px; -fx-padding: 8px 16px; -fx-cursor: hand; -fx-font-size: 12px; -fx-border-width: 1px;");
+        statsButton.setTooltip(new Tooltip("Show where answer time goes"));
+        statsButton.setOnAction(e -> toggleStats());
+        
+        controlButtons.getChildren().addAll(statsButton, logoutButton);
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         header.getChildren().addAll(headerContent, spacer, controlButtons);
         
+        // --- Stats panel, hidden until toggled ---
+        statsPanel = new Label();
+        statsPanel.getStyleClass().add("stats-panel");
+        statsPanel.managedProperty().bind(statsPanel.visibleProperty());
+        statsPanel.setVisible(false);
+        statsRefresh.setCycleCount(Animation.INDEFINITE);
+        
         // --- Chat Area with Fixed Text Wrapping ---
-        chatListView = new ListView<>(chatMessages);
+        chatListView = new ListView<>(chatHistory);
         chatListView.setPrefHeight(420);
-        chatListView.setStyle("-fx-background-color: rgba(0, 0, 0, 0.1); -fx-border-color: transparent; -fx-padding: 15px; -fx-background-insets: 0; -fx-focus-color: transparent; -fx-faint-focus-color: transparent;");
-     // Or for a more robust solution, you can use this approach after the ListView is created:
-        chatListView.skinProperty().addListener((obs, oldSkin, newSkin) -> {
-            if (newSkin != null) {
-                // Find the vertical scroll bar and make it take no space
-                chatListView.lookup(".scroll-bar:vertical").setStyle(
-                    "-fx-pref-width: 0;" +
-                    "-fx-max-width: 0;" +
-                    "-fx-min-width: 0;" +
-                    "-fx-opacity: 0;"
-                );
-                
-                // Also handle the corner where scroll bars meet (if horizontal scroll bar appears)
-                if (chatListView.lookup(".corner") != null) {
-                    chatListView.lookup(".corner").setStyle(
-                        "-fx-pref-width: 0;" +
-                        "-fx-max-width: 0;" +
-                        "-fx-min-width: 0;" +
-                        "-fx-pref-height: 0;" +
-                        "-fx-max-height: 0;" +
-                        "-fx-min-height: 0;"
-                    );
-                }
-            }
-        });
+        chatListView.getStyleClass().add("chat-list");
+        chatListView.setCellFactory(listView -> new ChatMessageCell(wrapWidth, heightCache,
+                activeRequests::containsKey, this::cancelRequest));
         
-        // Fixed cell factory with proper text wrapping and spacing
-        chatListView.setCellFactory(listView -> new ListCell<String>() {
-            private Text text = new Text();
-            private VBox container = new VBox();
-            
-            {
-                // Initialize container with padding for spacing between messages
-                container.setPadding(new Insets(5, 0, 5, 0)); // Top and bottom padding for spacing
-                container.getChildren().add(text);
-            }
-            
-            @Override
-            protected void updateItem(String item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                    setGraphic(null);
-                    setStyle("-fx-background-color: transparent;");
-                } else {
-                    // Use Text node for proper wrapping
-                    text.setText(item);
-                    text.setWrappingWidth(listView.getWidth() - 80); // Account for padding and scrollbar
-                    
-                    if (item.contains("You:")) {
-                        text.setStyle("-fx-fill: rgba(255, 255, 255, 0.9); -fx-font-size: 13px;");
-                        container.setStyle("-fx-background-color: rgba(0, 188, 255, 0.1); -fx-background-radius: 10px; -fx-padding: 8px 12px;");
-                        setStyle("-fx-background-color: transparent; -fx-padding: 5px 0;");
-                    } else if (item.contains("Assistant:")) {
-                        text.setStyle("-fx-fill: rgba(255, 255, 255, 0.8); -fx-font-size: 13px;");
-                        container.setStyle("-fx-background-color: rgba(255, 255, 255, 0.05); -fx-background-radius: 10px; -fx-padding: 8px 12px;");
-                        setStyle("-fx-background-color: transparent; -fx-padding: 5px 0;");
-                    } else {
-                        text.setStyle("-fx-fill: rgba(255, 255, 255, 0.7); -fx-font-size: 13px;");
-                        container.setStyle("-fx-background-color: transparent; -fx-padding: 8px 12px;");
-                        setStyle("-fx-background-color: transparent; -fx-padding: 5px 0;");
-                    }
-                    
-                    setText(null);
-                    setGraphic(container);
-                }
-            }
-        });
-        
-        // Update text wrapping when ListView width changes
+        // Re-wrap visible messages once resizing pauses, instead of rebuilding every cell per pixel
+        resizeDebounce.setOnFinished(e -> updateWrapWidth());
         chatListView.widthProperty().addListener((obs, oldWidth, newWidth) -> {
-            chatListView.refresh();
+            if (oldWidth.doubleValue() == 0) {
+                updateWrapWidth(); // first layout: wrap right away
+            } else {
+                resizeDebounce.playFromStart();
+            }
         });
         
         // --- Input Area (original code) ---
@@ -201,7 +194,7 @@ public class ChatPage {
         );
         
         messageInput = new TextField();
-        messageInput.setPromptText("Type your message here...");
+        messageInput.setPromptText("Type your message here... (start with @file.pdf to ask about one file)");
         messageInput.setPrefHeight(40);
         messageInput.setStyle(
             "-fx-font-size: 14px;" +
@@ -298,7 +291,14 @@ public class ChatPage {
         attachButton.setOnAction(e -> handleFileAttach());
         
         inputArea.getChildren().addAll(messageInput , attachButton, sendButton);
-        chatPane.getChildren().addAll(header, chatListView, inputArea);
+        
+        // --- Files being indexed, above the input ---
+        jobsPane = new VBox(4);
+        jobsPane.getStyleClass().add("jobs-pane");
+        jobsPane.managedProperty().bind(jobsPane.visibleProperty());
+        jobsPane.visibleProperty().bind(Bindings.isNotEmpty(jobsPane.getChildren()));
+        
+        chatPane.getChildren().addAll(header, statsPanel, chatListView, jobsPane, inputArea);
     }
 
     /**
@@ -307,15 +307,101 @@ public class ChatPage {
     private void handleSendMessage() {
         String message = messageInput.getText().trim();
         if (!message.isEmpty()) {
-            String timestamp = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
-            chatMessages.add(String.format("🟢 [%s] You: %s", timestamp, message));
+            chatHistory.add(ChatMessage.user(message, TokenCounter.count(message)));
             
-         // Instead of rule-based response → call RAG
-            String botResponse = ollamaService.ask(message);
-            chatMessages.add(String.format("🤖 [%s] Zentriq: %s", timestamp, botResponse));
+            // Stream the RAG answer into a single growing bot message, off the FX thread
+            ChatMessage placeholder = ChatMessage.assistant("");
+            int index = chatHistory.size();
+            int generation = chatGeneration;
+            StringBuilder answer = new StringBuilder();
+            AtomicInteger tokens = new AtomicInteger();
+            long startNanos = System.nanoTime();
+
+            // "@report.pdf question" answers from that file (or collection) only
+            ScopedQuestion scoped = ScopedQuestion.parse(message);
+            CompletableFuture<String> request = chatRequestExecutor.submit(scoped.question(), scoped.filter(),
+                    token -> Platform.runLater(() -> {
+                        answer.append(token);
+                        tokens.incrementAndGet();
+                        updateMessage(generation, index, placeholder.withText(answer.toString()));
+                    }));
+            // Registered before the message is shown, so its cell comes with a cancel button
+            activeRequests.put(index, request);
+            chatHistory.add(placeholder);
+
+            request.whenComplete((fullAnswer, error) -> Platform.runLater(() -> {
+                activeRequests.remove(index, request);
+                long latencyMillis = (System.nanoTime() - startNanos) / 1_000_000;
+                // The failure itself, not the CompletionException's "java.lang.…Exception: …" wrapper text
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (request.isCancelled()) {
+                    finishMessage(generation, index, placeholder.withText(answer + " ⏹ (cancelled)"));
+                } else if (cause instanceof RejectedExecutionException) {
+                    finishMessage(generation, index, placeholder.withText("⚠️ Too many requests in progress, please wait for one to finish."));
+                } else if (cause != null) {
+                    finishMessage(generation, index, placeholder.withText("⚠️ "
+                            + (cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName())));
+                } else {
+                    finishMessage(generation, index, placeholder.withText(answer.toString()).withStats(tokens.get(), latencyMillis));
+                }
+            }));
             
             messageInput.clear();
-            chatListView.scrollTo(chatMessages.size() - 1);
+            chatListView.scrollTo(chatHistory.size() - 1);
+        }
+    }
+
+    private void updateWrapWidth() {
+        wrapWidth.set(Math.max(0, chatListView.getWidth() - ChatMessageCell.HORIZONTAL_INSETS));
+    }
+
+    private void toggleStats() {
+        boolean show = !statsPanel.isVisible();
+        statsPanel.setVisible(show);
+        if (show) {
+            refreshStats();
+            statsRefresh.play();
+        } else {
+            statsRefresh.stop();
+        }
+    }
+
+    // Averages since startup, from the same meters the actuator serves
+    private void refreshStats() {
+        RagMetrics.Snapshot stats = ollamaService.getMetrics().snapshot();
+        statsPanel.setText(String.format(
+                "questions %d   embed %.0f ms   retrieve %.0f ms   prompt %.1f ms%n"
+                + "first token %.0f ms   answer %.0f ms   %.1f tok/s   context ~%.0f tokens%n"
+                + "answer cache %.0f%%   embedding cache %.0f%%   %,d chunks indexed from files",
+                stats.questions(), stats.embeddingMillis(), stats.retrievalMillis(), stats.promptMillis(),
+                stats.firstTokenMillis(), stats.generationMillis(), stats.tokensPerSecond(), stats.contextTokens(),
+                stats.answerCacheHitRate() * 100, stats.embeddingCacheHitRate() * 100, stats.chunksIndexed()));
+    }
+
+    // Cancel button of an answer's cell
+    private void cancelRequest(int index) {
+        CompletableFuture<String> request = activeRequests.get(index);
+        if (request != null) {
+            request.cancel(true);
+        }
+    }
+
+    // Replace a message in place, unless the chat was cleared since it was added (e.g. logout).
+    // Streamed tokens for a row already spilled to disk are skipped; finishMessage writes the answer.
+    private void updateMessage(int generation, int index, ChatMessage message) {
+        if (generation == chatGeneration && chatHistory.isInMemory(index)) {
+            chatHistory.set(index, message);
+            chatListView.scrollTo(index);
+        }
+    }
+
+    // The final text of a message, written even if its row was spilled while the answer streamed in
+    private void finishMessage(int generation, int index, ChatMessage message) {
+        if (generation == chatGeneration && index < chatHistory.size()) {
+            chatHistory.set(index, message);
+            if (chatHistory.isInMemory(index)) {
+                chatListView.scrollTo(index);
+            }
         }
     }
 
@@ -355,10 +441,9 @@ public class ChatPage {
      * Generates the welcome message for the chat based on the logged-in user.
      * Corresponds to the logic inside the original 'showChatInterface' method.
      */
-    public String generateWelcomeMessage(String currentUser) {
-        String timestamp = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
-        return String.format("🤖 [%s] Assistant: Hello %s! Welcome to Zentriq. How can I help you today?", 
-            timestamp, currentUser);
+    public ChatMessage generateWelcomeMessage(String currentUser) {
+        return ChatMessage.assistant(String.format("Hello %s! Welcome to Zentriq. How can I help you today?",
+            currentUser));
     }
     
     private void applyFocusStyle(boolean isNowFocused) {
@@ -428,16 +513,47 @@ public class ChatPage {
             new FileChooser.ExtensionFilter("All Files", "*.*")
         );
 
-        File selectedFile = fileChooser.showOpenDialog(chatPane.getScene().getWindow());
-        if (selectedFile != null) {
-            try {
-                List<Document> docs = CustomDocumentLoader.loadFiles(selectedFile.toPath());
-                ollamaService.indexDocuments(docs);
-                addMessage("📂 Loaded file: " + selectedFile.getName() + " (" + docs.size() + " chunks)");
-            } catch (IOException ex) {
-                ex.printStackTrace();
-                addMessage("⚠️ Failed to load file: " + selectedFile.getName());
-            }
+        List<File> selectedFiles = fileChooser.showOpenMultipleDialog(chatPane.getScene().getWindow());
+        if (selectedFiles != null) {
+            selectedFiles.forEach(this::indexInBackground);
         }
     }
+
+    // Queue a file for indexing and show its progress until it is done, failed or cancelled
+    private void indexInBackground(File file) {
+        Label name = new Label(file.getName());
+        name.getStyleClass().add("job-name");
+        ProgressBar progress = new ProgressBar(ProgressBar.INDETERMINATE_PROGRESS);
+        progress.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(progress, Priority.ALWAYS);
+        Label count = new Label("queued");
+        count.getStyleClass().add("job-count");
+        Button cancel = new Button("✕");
+        cancel.getStyleClass().add("job-cancel");
+        cancel.setTooltip(new Tooltip("Stop indexing this file"));
+        HBox row = new HBox(8, name, progress, count, cancel);
+        row.setAlignment(Pos.CENTER_LEFT);
+        jobsPane.getChildren().add(row);
+
+        IngestionJobService.Job job = ingestionJobService.submit(file.toPath(), changed -> Platform.runLater(() -> {
+            progress.setProgress(changed.getProgress());
+            if (changed.getState() == IngestionJobService.State.RUNNING) {
+                count.setText(String.format("%,d / %,d%s chunks", changed.getStored(), changed.getProduced(),
+                        changed.isParsed() ? "" : "+"));
+            }
+        }));
+        cancel.setOnAction(e -> job.cancel());
+
+        job.result().whenComplete((stats, error) -> Platform.runLater(() -> {
+            jobsPane.getChildren().remove(row);
+            if (error == null) {
+                addMessage(ChatMessage.system(String.format("📂 Loaded file: %s (%d chunks, %.1f chunks/s)",
+                        file.getName(), stats.chunks(), stats.chunksPerSecond())));
+            } else if (error instanceof CancellationException) {
+                addMessage(ChatMessage.system("⏹ Stopped loading " + file.getName()));
+            } else {
+                addMessage(ChatMessage.system("⚠️ Failed to load file: " + file.getName()));
+            }
+        }));
+    }
 }
\ No newline at end of file
@@ -9,6 +9,8 @@ import org.springframework.context.annotation.AnnotationConfigApplicationContext
 import org.springframework.stereotype.Component;
 
 import com.zentriq.ZentriqApplication;
+import com.zentriq.ai.ChatRequestExecutor;
+import com.zentriq.ai.IngestionJobService;
 import com.zentriq.ai.OllamaService;
 
 import javafx.application.Application;
@@ -39,11 +41,17 @@ public class DesktopChatApp extends Application {
     
     @Autowired
     private OllamaService ollamaService;
+    private ChatRequestExecutor chatRequestExecutor;
+    private IngestionJobService ingestionJobService;
+    private int historyWindow;
     public static ConfigurableApplicationContext springContext;
     
     @Override
     public void init() {
         this.ollamaService = springContext.getBean(OllamaService.class);
+        this.chatRequestExecutor = springContext.getBean(ChatRequestExecutor.class);
+        this.ingestionJobService = springContext.getBean(IngestionJobService.class);
+        this.historyWindow = springContext.getEnvironment().getProperty("zentriq.chat.history-window", Integer.class, 500);
     }
     
     @Override
@@ -60,7 +68,7 @@ public class DesktopChatApp extends Application {
         if(ollamaService == null) {
         	System.out.println("Yes it is null ");
         }
-        this.chatPage = new ChatPage(this, ollamaService);
+        this.chatPage = new ChatPage(this, ollamaService, chatRequestExecutor, ingestionJobService, historyWindow);
         
         // Create the floating logo window
         this.floatingStage = floatingLogo.create();
@@ -128,8 +136,7 @@ public class DesktopChatApp extends Application {
     // --- Original 'showChatInterface' method logic ---
     public void showChatInterface() {
         if (chatPage.getChatMessages().isEmpty()) {
-            String welcomeMessage = chatPage.generateWelcomeMessage(currentUser);
-            chatPage.addMessage(welcomeMessage);
+            chatPage.addMessage(chatPage.generateWelcomeMessage(currentUser));
         }
         
         mainStage.getScene().setRoot(chatPage.getChatPane());
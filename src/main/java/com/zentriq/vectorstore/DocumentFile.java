@@ -0,0 +1,219 @@
+package com.zentriq.vectorstore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Side file holding document text and metadata for {@link MappedVectorStore}.
+ *
+ * Each document is a one-line JSON header with its id, metadata and the length of its text in
+ * bytes, followed by the raw UTF-8 text and a newline. Documents are written in row order, so the
+ * n-th document belongs to row n of the {@link VectorFile}, and replay on open parses the small
+ * headers only, jumping over the text. Deletions are appended as tombstone lines; nothing is ever
+ * rewritten in place.
+ */
+final class DocumentFile implements Closeable {
+
+	private static final TypeReference<LinkedHashMap<String, Object>> RECORD = new TypeReference<>() {
+	};
+
+	private final ObjectMapper objectMapper;
+	private final FileChannel channel;
+
+	/**
+	 * Byte range of one document's text.
+	 */
+	record Location(long offset, int length) {
+	}
+
+	/**
+	 * Receives records in file order while the file is opened.
+	 */
+	interface Visitor {
+
+		void document(String id, Map<String, Object> metadata, Location location);
+
+		void deleted(String id);
+	}
+
+	DocumentFile(Path file, ObjectMapper objectMapper) throws IOException {
+		this.objectMapper = objectMapper;
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Replay every record. A torn last record (crash mid-write) is ignored and later overwritten.
+	 */
+	@SuppressWarnings("unchecked")
+	void replay(Visitor visitor) throws IOException {
+		Reader in = new Reader(channel, 0);
+		long validEnd = in.offset();
+		byte[] line;
+		while ((line = in.readLine()) != null) {
+			Map<String, Object> header = objectMapper.readValue(line, RECORD);
+			if (header.containsKey("deleted")) {
+				visitor.deleted((String) header.get("deleted"));
+			} else {
+				long textOffset = in.offset();
+				int length = ((Number) header.get("bytes")).intValue();
+				if (!in.skipLine(length)) {
+					break;
+				}
+				visitor.document((String) header.get("id"),
+						(Map<String, Object>) header.getOrDefault("metadata", Map.of()), new Location(textOffset, length));
+			}
+			validEnd = in.offset();
+		}
+		channel.truncate(validEnd);
+	}
+
+	/**
+	 * Append a document record and return where its text lives in the file.
+	 */
+	Location appendDocument(String id, String text, Map<String, Object> metadata) throws IOException {
+		byte[] textBytes = (text == null ? "" : text).getBytes(StandardCharsets.UTF_8);
+		byte[] record = documentRecord(id, textBytes, metadata);
+		long offset = channel.size();
+		write(record, offset);
+		return new Location(offset + record.length - textBytes.length, textBytes.length);
+	}
+
+	void appendTombstone(String id) throws IOException {
+		write(objectMapper.writeValueAsBytes(Map.of("deleted", id)), channel.size());
+	}
+
+	/**
+	 * Read back the text of a document record.
+	 */
+	String readText(Location location) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(location.length());
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, location.offset() + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of document file at offset " + location.offset());
+			}
+		}
+		return new String(buffer.array(), StandardCharsets.UTF_8);
+	}
+
+	void force() throws IOException {
+		channel.force(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.force(false);
+		channel.close();
+	}
+
+	// Header line and text, without the final newline
+	private byte[] documentRecord(String id, byte[] text, Map<String, Object> metadata) throws IOException {
+		Map<String, Object> header = new LinkedHashMap<>();
+		header.put("id", id);
+		header.put("metadata", metadata);
+		header.put("bytes", text.length);
+		byte[] headerBytes = objectMapper.writeValueAsBytes(header);
+		byte[] record = Arrays.copyOf(headerBytes, headerBytes.length + 1 + text.length);
+		record[headerBytes.length] = '\n';
+		System.arraycopy(text, 0, record, headerBytes.length + 1, text.length);
+		return record;
+	}
+
+	// Write bytes and a newline; a failed write is cut off again, so the next record does not land after half of it
+	private void write(byte[] bytes, long offset) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 1);
+		buffer.put(bytes).put((byte) '\n').flip();
+		long position = offset;
+		try {
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+		} catch (IOException ex) {
+			try {
+				channel.truncate(offset);
+			} catch (IOException suppressed) {
+				ex.addSuppressed(suppressed);
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Buffered sequential reads from a channel that can jump over a range without reading it.
+	 */
+	private static final class Reader {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).limit(0);
+		// File offset of the buffer's first byte
+		private long bufferStart;
+
+		Reader(FileChannel channel, long offset) {
+			this.channel = channel;
+			this.bufferStart = offset;
+		}
+
+		long offset() {
+			return bufferStart + buffer.position();
+		}
+
+		// Next line without its newline; null at the end of the file or on a torn last line
+		byte[] readLine() throws IOException {
+			ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+			while (true) {
+				if (!buffer.hasRemaining() && !fill()) {
+					return null;
+				}
+				int from = buffer.position();
+				int end = from;
+				while (end < buffer.limit() && buffer.get(end) != '\n') {
+					end++;
+				}
+				line.write(buffer.array(), from, end - from);
+				if (end < buffer.limit()) {
+					buffer.position(end + 1);
+					return line.toByteArray();
+				}
+				buffer.position(end);
+			}
+		}
+
+		// Jump over {@code length} bytes and the newline after them; false if the file ends first
+		boolean skipLine(int length) throws IOException {
+			long target = offset() + length;
+			if (target >= channel.size()) {
+				return false;
+			}
+			if (target <= bufferStart + buffer.limit()) {
+				buffer.position((int) (target - bufferStart));
+			} else {
+				bufferStart = target;
+				buffer.limit(0);
+			}
+			if (!buffer.hasRemaining() && !fill()) {
+				return false;
+			}
+			return buffer.get() == '\n';
+		}
+
+		private boolean fill() throws IOException {
+			bufferStart = offset();
+			buffer.clear();
+			int read = channel.read(buffer, bufferStart);
+			buffer.flip();
+			return read > 0;
+		}
+	}
+}
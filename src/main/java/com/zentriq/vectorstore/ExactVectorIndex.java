@@ -0,0 +1,107 @@
+package com.zentriq.vectorstore;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+
+/**
+ * Brute-force scan over every row: exact results, cost linear in the number of rows.
+ *
+ * With a fork-join pool, scans longer than one segment of {@link #SEGMENT_ROWS} rows (one mapped
+ * segment of the {@link VectorFile}) are split into segments scored in parallel, each into its
+ * own bounded {@link TopK} heap; the heaps are merged as the tasks join.
+ */
+final class ExactVectorIndex implements VectorIndex {
+
+	static final int SEGMENT_ROWS = VectorFile.ROWS_PER_SEGMENT;
+
+	private final VectorFile vectors;
+	private final ForkJoinPool pool;
+
+	ExactVectorIndex(VectorFile vectors) {
+		this(vectors, null);
+	}
+
+	// pool null scans on the calling thread
+	ExactVectorIndex(VectorFile vectors, ForkJoinPool pool) {
+		this.vectors = vectors;
+		this.pool = pool;
+	}
+
+	@Override
+	public void add(int row, float[] vector) {
+		// Nothing to maintain: the scan reads the vector file directly
+	}
+
+	@Override
+	public void remove(int row) {
+		// Removed rows are rejected by the accept predicate
+	}
+
+	@Override
+	public List<ScoredRow> search(float[] query, int topK, float threshold, IntPredicate accept) {
+		return scan(new Scan(query, topK, threshold, accept, null, 0, vectors.size()));
+	}
+
+	// Same as search, scanning only the given rows (e.g. one file's partition) instead of every row
+	List<ScoredRow> search(float[] query, int topK, float threshold, IntPredicate accept, int[] rows) {
+		return scan(new Scan(query, topK, threshold, accept, rows, 0, rows.length));
+	}
+
+	private List<ScoredRow> scan(Scan scan) {
+		if (pool == null || scan.to - scan.from <= SEGMENT_ROWS) {
+			return scan.compute().toList();
+		}
+		return pool.invoke(scan).toList();
+	}
+
+	// Positions [from, to) of the rows array, or rows from..to-1 when it is null
+	private final class Scan extends RecursiveTask<TopK> {
+
+		private final float[] query;
+		private final int topK;
+		private final float threshold;
+		private final IntPredicate accept;
+		private final int[] rows;
+		private final int from;
+		private final int to;
+
+		Scan(float[] query, int topK, float threshold, IntPredicate accept, int[] rows, int from, int to) {
+			this.query = query;
+			this.topK = topK;
+			this.threshold = threshold;
+			this.accept = accept;
+			this.rows = rows;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected TopK compute() {
+			if (pool != null && to - from > SEGMENT_ROWS) {
+				// Split on a segment boundary
+				int middle = from + Math.max(1, (to - from) / SEGMENT_ROWS / 2) * SEGMENT_ROWS;
+				Scan left = new Scan(query, topK, threshold, accept, rows, from, middle);
+				left.fork();
+				TopK best = new Scan(query, topK, threshold, accept, rows, middle, to).compute();
+				best.addAll(left.join());
+				return best;
+			}
+			TopK best = new TopK(topK);
+			float[] candidate = new float[vectors.dimensions()];
+			for (int i = from; i < to; i++) {
+				int row = rows == null ? i : rows[i];
+				if (!accept.test(row)) {
+					continue;
+				}
+				vectors.read(row, candidate);
+				float score = MappedVectorStore.dot(query, candidate);
+				if (score >= threshold) {
+					best.offer(row, score);
+				}
+			}
+			return best;
+		}
+	}
+}
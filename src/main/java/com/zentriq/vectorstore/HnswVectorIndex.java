@@ -0,0 +1,322 @@
+package com.zentriq.vectorstore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov &amp; Yashunin) over the rows of a {@link VectorFile}.
+ *
+ * Search cost grows roughly logarithmically with the number of rows instead of linearly.
+ * {@code m} bounds the links per node (twice that on the bottom layer), {@code efConstruction}
+ * trades build time for graph quality and {@code efSearch} trades query latency for recall.
+ * Removed rows stay in the graph as waypoints but are never returned, and do not count against
+ * {@code efSearch}. The graph is saved next to the vectors on close and rebuilt from them if the
+ * saved copy is missing or stale.
+ */
+final class HnswVectorIndex implements VectorIndex {
+
+	private static final int MAGIC = 0x5A484E31; // "ZHN1"
+
+	private static final Comparator<ScoredRow> BY_SCORE = Comparator.comparingDouble(ScoredRow::score);
+
+	private final VectorFile vectors;
+	private final Path graphFile;
+	private final int m;
+	private final int maxLinksLayer0;
+	private final int efConstruction;
+	private final int efSearch;
+	private final double levelFactor;
+	private final SplittableRandom random = new SplittableRandom(42);
+
+	// links[row][level] = {count, neighbour...}
+	private int[][][] links = new int[0][][];
+	private int nodeCount;
+	private int entryPoint = -1;
+	private int maxLevel = -1;
+
+	HnswVectorIndex(VectorFile vectors, Path graphFile, int m, int efConstruction, int efSearch) {
+		// The level distribution divides by log(m), which is zero for m = 1
+		if (m < 2) {
+			throw new IllegalArgumentException("HNSW m must be at least 2: " + m);
+		}
+		if (efConstruction < 1 || efSearch < 1) {
+			throw new IllegalArgumentException("HNSW ef must be positive: efConstruction=" + efConstruction
+					+ ", efSearch=" + efSearch);
+		}
+		this.vectors = vectors;
+		this.graphFile = graphFile;
+		this.m = m;
+		this.maxLinksLayer0 = 2 * m;
+		this.efConstruction = Math.max(efConstruction, m);
+		this.efSearch = efSearch;
+		this.levelFactor = 1.0 / Math.log(m);
+	}
+
+	/**
+	 * Load the saved graph if it matches the vector file, otherwise report false so the caller rebuilds.
+	 */
+	boolean load() throws IOException {
+		if (!Files.exists(graphFile)) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(graphFile), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readInt() != m || in.readInt() != vectors.size()) {
+				return false;
+			}
+			int count = vectors.size();
+			links = new int[count][][];
+			entryPoint = in.readInt();
+			maxLevel = in.readInt();
+			for (int row = 0; row < count; row++) {
+				int levels = in.readInt();
+				links[row] = new int[levels][];
+				for (int level = 0; level < levels; level++) {
+					int size = in.readInt();
+					int[] list = new int[maxLinks(level) + 1];
+					list[0] = size;
+					for (int i = 1; i <= size; i++) {
+						list[i] = in.readInt();
+					}
+					links[row][level] = list;
+				}
+			}
+			nodeCount = count;
+		}
+		// The graph file is only valid until the next append; drop it so a crash forces a rebuild
+		Files.delete(graphFile);
+		return true;
+	}
+
+	@Override
+	public void save() throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(graphFile), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(m);
+			out.writeInt(nodeCount);
+			out.writeInt(entryPoint);
+			out.writeInt(maxLevel);
+			for (int row = 0; row < nodeCount; row++) {
+				out.writeInt(links[row].length);
+				for (int[] list : links[row]) {
+					out.writeInt(list[0]);
+					for (int i = 1; i <= list[0]; i++) {
+						out.writeInt(list[i]);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void add(int row, float[] vector) {
+		if (row != nodeCount) {
+			throw new IllegalStateException("HNSW rows must be added in order, expected " + nodeCount + " got " + row);
+		}
+		int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelFactor);
+		if (row >= links.length) {
+			links = Arrays.copyOf(links, Math.max(16, links.length * 2));
+		}
+		links[row] = new int[level + 1][];
+		for (int l = 0; l <= level; l++) {
+			links[row][l] = new int[maxLinks(l) + 1];
+		}
+		nodeCount++;
+
+		if (entryPoint < 0) {
+			entryPoint = row;
+			maxLevel = level;
+			return;
+		}
+
+		float[] scratch = new float[vectors.dimensions()];
+		int current = entryPoint;
+		float currentScore = score(vector, current, scratch);
+		for (int l = maxLevel; l > level; l--) {
+			ScoredRow closest = greedyClosest(vector, current, currentScore, l, scratch);
+			current = closest.row();
+			currentScore = closest.score();
+		}
+		for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+			List<ScoredRow> candidates = searchLayer(vector, new ScoredRow(current, currentScore), efConstruction, l,
+					candidate -> true, scratch);
+			List<ScoredRow> neighbours = selectNeighbours(candidates, m, scratch);
+			for (ScoredRow neighbour : neighbours) {
+				link(row, neighbour.row(), l);
+				link(neighbour.row(), row, l);
+			}
+			ScoredRow best = candidates.get(0);
+			current = best.row();
+			currentScore = best.score();
+		}
+		if (level > maxLevel) {
+			maxLevel = level;
+			entryPoint = row;
+		}
+	}
+
+	@Override
+	public void remove(int row) {
+		// Removed rows keep their links so the graph stays connected; accept() filters them out
+	}
+
+	@Override
+	public List<ScoredRow> search(float[] query, int topK, float threshold, IntPredicate accept) {
+		if (entryPoint < 0) {
+			return List.of();
+		}
+		float[] scratch = new float[vectors.dimensions()];
+		int current = entryPoint;
+		float currentScore = score(query, current, scratch);
+		for (int l = maxLevel; l > 0; l--) {
+			ScoredRow closest = greedyClosest(query, current, currentScore, l, scratch);
+			current = closest.row();
+			currentScore = closest.score();
+		}
+		List<ScoredRow> candidates = searchLayer(query, new ScoredRow(current, currentScore),
+				Math.max(efSearch, topK), 0, accept, scratch);
+		List<ScoredRow> hits = new ArrayList<>(topK);
+		for (ScoredRow candidate : candidates) {
+			if (hits.size() == topK || candidate.score() < threshold) {
+				break;
+			}
+			hits.add(candidate);
+		}
+		return hits;
+	}
+
+	private int maxLinks(int level) {
+		return level == 0 ? maxLinksLayer0 : m;
+	}
+
+	private float score(float[] query, int row, float[] scratch) {
+		vectors.read(row, scratch);
+		return MappedVectorStore.dot(query, scratch);
+	}
+
+	// Walk to the best neighbour until no neighbour improves (ef = 1)
+	private ScoredRow greedyClosest(float[] query, int start, float startScore, int level, float[] scratch) {
+		int current = start;
+		float currentScore = startScore;
+		boolean improved = true;
+		while (improved) {
+			improved = false;
+			int[] list = links[current][level];
+			for (int i = 1; i <= list[0]; i++) {
+				float s = score(query, list[i], scratch);
+				if (s > currentScore) {
+					current = list[i];
+					currentScore = s;
+					improved = true;
+				}
+			}
+		}
+		return new ScoredRow(current, currentScore);
+	}
+
+	/**
+	 * Beam search on one layer; returns up to {@code ef} accepted rows, best first. Rejected rows
+	 * (deleted, filtered out) are walked through but do not take a place in the beam, so a graph
+	 * with many of them is searched further instead of coming back with fewer hits.
+	 */
+	private List<ScoredRow> searchLayer(float[] query, ScoredRow start, int ef, int level, IntPredicate accept,
+			float[] scratch) {
+		BitSet visited = new BitSet(nodeCount);
+		visited.set(start.row());
+		PriorityQueue<ScoredRow> candidates = new PriorityQueue<>(BY_SCORE.reversed());
+		PriorityQueue<ScoredRow> results = new PriorityQueue<>(BY_SCORE);
+		candidates.add(start);
+		if (accept.test(start.row())) {
+			results.add(start);
+		}
+		while (!candidates.isEmpty()) {
+			ScoredRow candidate = candidates.poll();
+			if (results.size() >= ef && candidate.score() < results.peek().score()) {
+				break;
+			}
+			int[] list = links[candidate.row()][level];
+			for (int i = 1; i <= list[0]; i++) {
+				int neighbour = list[i];
+				if (visited.get(neighbour)) {
+					continue;
+				}
+				visited.set(neighbour);
+				float s = score(query, neighbour, scratch);
+				if (results.size() < ef || s > results.peek().score()) {
+					ScoredRow scored = new ScoredRow(neighbour, s);
+					candidates.add(scored);
+					if (accept.test(neighbour)) {
+						results.add(scored);
+						if (results.size() > ef) {
+							results.poll();
+						}
+					}
+				}
+			}
+		}
+		List<ScoredRow> ordered = new ArrayList<>(results);
+		ordered.sort(BY_SCORE.reversed());
+		return ordered;
+	}
+
+	/**
+	 * Neighbour selection heuristic: keep a candidate only if it is closer to the base node than to
+	 * any neighbour already kept, which spreads links across clusters. Candidates are best first.
+	 */
+	private List<ScoredRow> selectNeighbours(List<ScoredRow> candidates, int max, float[] scratch) {
+		List<ScoredRow> selected = new ArrayList<>(max);
+		float[] candidateVector = new float[vectors.dimensions()];
+		for (ScoredRow candidate : candidates) {
+			if (selected.size() >= max) {
+				break;
+			}
+			vectors.read(candidate.row(), candidateVector);
+			boolean diverse = true;
+			for (ScoredRow kept : selected) {
+				if (score(candidateVector, kept.row(), scratch) > candidate.score()) {
+					diverse = false;
+					break;
+				}
+			}
+			if (diverse) {
+				selected.add(candidate);
+			}
+		}
+		return selected;
+	}
+
+	private void link(int from, int to, int level) {
+		int[] list = links[from][level];
+		int max = maxLinks(level);
+		if (list[0] < max) {
+			list[++list[0]] = to;
+			return;
+		}
+		// Full: re-select among the existing links plus the new one, relative to 'from'
+		float[] base = vectors.read(from);
+		float[] scratch = new float[base.length];
+		List<ScoredRow> candidates = new ArrayList<>(max + 1);
+		for (int i = 1; i <= list[0]; i++) {
+			candidates.add(new ScoredRow(list[i], score(base, list[i], scratch)));
+		}
+		candidates.add(new ScoredRow(to, score(base, to, scratch)));
+		candidates.sort(BY_SCORE.reversed());
+		List<ScoredRow> kept = selectNeighbours(candidates, max, scratch);
+		list[0] = kept.size();
+		for (int i = 0; i < kept.size(); i++) {
+			list[i + 1] = kept.get(i).row();
+		}
+	}
+}
@@ -0,0 +1,654 @@
+package com.zentriq.vectorstore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.observation.conventions.VectorStoreSimilarityMetric;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Persistent {@link org.springframework.ai.vectorstore.VectorStore} backed by a memory-mapped
+ * {@link VectorFile} of embeddings and an append-only {@link DocumentFile} of text and metadata.
+ *
+ * Vectors are normalised on the way in so cosine similarity is a plain dot product. Only ids,
+ * metadata and file offsets live on the heap; document text is read back for search hits only.
+ * The index is append-only: deletes write a tombstone and the row is skipped from then on.
+ *
+ * Metadata fields named with {@link Builder#partitionBy} (e.g. the source file) are partitioned:
+ * the rows holding each value are listed, so a filter pinning such a field ({@code filename == 'a.pdf'},
+ * {@code in}, and {@code &&}/{@code ||} of those) scans only the matching rows instead of testing
+ * every row's metadata. Other filters fall back to a full scan.
+ */
+public class MappedVectorStore extends AbstractObservationVectorStore implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(MappedVectorStore.class);
+
+	static final String VECTOR_FILE = "vectors.bin";
+	static final String DOCUMENT_FILE = "documents.jsonl";
+	static final String GRAPH_FILE = "hnsw.graph";
+
+	private final Path directory;
+	private final Builder.Hnsw hnsw;
+	private final Builder.Quantization quantization;
+	// Exact scans over several segments run on it; null scans on the caller's thread
+	private final ForkJoinPool searchPool;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final SpelExpressionParser expressionParser = new SpelExpressionParser();
+	private final SimpleVectorStoreFilterExpressionConverter filterExpressionConverter = new QuotingFilterExpressionConverter();
+
+	// Guards the files and the row bookkeeping below; embedding always happens outside it
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private VectorFile vectors;
+	private DocumentFile documents;
+	private ExactVectorIndex exactIndex;
+	private VectorIndex index;
+	private final List<Row> rows = new ArrayList<>();
+	private final Map<String, Integer> rowById = new HashMap<>();
+	private final BitSet deleted = new BitSet();
+	// Partitioned field -> value -> rows holding it, ascending; dead rows stay listed and are skipped
+	private final Map<String, Map<String, RowList>> partitions = new HashMap<>();
+
+	private record Row(String id, Map<String, Object> metadata, DocumentFile.Location location) {
+	}
+
+	protected MappedVectorStore(Builder builder) {
+		super(builder);
+		this.directory = builder.directory;
+		this.hnsw = builder.hnsw;
+		this.quantization = builder.quantization;
+		int threads = builder.parallelism == 0 ? Runtime.getRuntime().availableProcessors() : builder.parallelism;
+		this.searchPool = threads > 1 ? new ForkJoinPool(threads) : null;
+		builder.partitionFields.forEach(field -> partitions.put(field, new HashMap<>()));
+		if (Files.exists(directory.resolve(VECTOR_FILE))) {
+			long start = System.nanoTime();
+			open();
+			logger.info("Opened vector index {} with {} documents in {} ms", directory, rowById.size(),
+					(System.nanoTime() - start) / 1_000_000);
+		}
+	}
+
+	/**
+	 * Spring's converter puts string values between single quotes as they are, so a quote inside
+	 * one (a file named {@code O'Brien notes.txt}) would end the SpEL literal early.
+	 */
+	private static final class QuotingFilterExpressionConverter extends SimpleVectorStoreFilterExpressionConverter {
+
+		@Override
+		protected void doSingleValue(Object value, StringBuilder context) {
+			super.doSingleValue(value instanceof String text ? escapeQuotes(text) : value, context);
+		}
+	}
+
+	public static Builder builder(EmbeddingModel embeddingModel) {
+		return new Builder(embeddingModel);
+	}
+
+	// Number of live (not deleted) documents
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return rowById.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Live documents with the given ids, in the same order; unknown or deleted ids are skipped.
+	 * Lets other indexes over the same chunks (e.g. keyword search) keep only ids in memory.
+	 */
+	public List<Document> getDocuments(List<String> ids) {
+		lock.readLock().lock();
+		try {
+			List<Document> found = new ArrayList<>(ids.size());
+			for (String id : ids) {
+				Integer row = rowById.get(id);
+				if (row != null) {
+					found.add(toDocument(row));
+				}
+			}
+			return found;
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to read from vector index " + directory, ex);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Visit every live document in insertion order, e.g. to rebuild a derived index
+	public void forEachDocument(Consumer<Document> visitor) {
+		lock.readLock().lock();
+		try {
+			for (int row = 0; row < rows.size(); row++) {
+				if (!deleted.get(row)) {
+					visitor.accept(toDocument(row));
+				}
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to read from vector index " + directory, ex);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void doAdd(List<Document> documentList) {
+		if (documentList.isEmpty()) {
+			return;
+		}
+		List<float[]> embeddings = this.embeddingModel.embed(documentList, EmbeddingOptionsBuilder.builder().build(),
+				this.batchingStrategy);
+
+		lock.writeLock().lock();
+		try {
+			ensureOpen();
+			for (int i = 0; i < documentList.size(); i++) {
+				Document document = documentList.get(i);
+				float[] vector = normalize(embeddings.get(i));
+				int row = vectors.append(vector);
+				DocumentFile.Location location;
+				try {
+					location = documents.appendDocument(document.getId(), document.getText(), document.getMetadata());
+				} catch (IOException | RuntimeException ex) {
+					// Row n of the vector file must stay document n, or every later row is misattributed
+					vectors.truncate(row);
+					throw ex;
+				}
+				// Re-adding an id replaces the previous version
+				Integer previous = rowById.put(document.getId(), row);
+				if (previous != null) {
+					deleted.set(previous);
+					index.remove(previous);
+				}
+				rows.add(new Row(document.getId(), Map.copyOf(document.getMetadata()), location));
+				index.add(row, vector);
+				addToPartitions(row, document.getMetadata());
+			}
+			vectors.force();
+			documents.force();
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to append to vector index " + directory, ex);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void doDelete(List<String> idList) {
+		lock.writeLock().lock();
+		try {
+			if (documents == null) {
+				return;
+			}
+			for (String id : idList) {
+				Integer row = rowById.remove(id);
+				if (row != null) {
+					deleted.set(row);
+					index.remove(row);
+					documents.appendTombstone(id);
+				}
+			}
+			documents.force();
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to delete from vector index " + directory, ex);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	protected void doDelete(Filter.Expression filterExpression) {
+		doDelete(List.copyOf(matchingIds(filterExpression)));
+	}
+
+	/**
+	 * Ids of the live documents whose metadata matches the filter, looked up in the partitions
+	 * when the filter allows. Lets other indexes over the same chunks (e.g. keyword search) be
+	 * restricted the same way as a filtered similarity search.
+	 */
+	public Set<String> matchingIds(Filter.Expression filterExpression) {
+		Predicate<Map<String, Object>> filter = metadataFilter(filterExpression);
+		Set<String> matching = new HashSet<>();
+		lock.readLock().lock();
+		try {
+			int[] candidates = partitionRows(filterExpression);
+			int count = candidates == null ? rows.size() : candidates.length;
+			for (int i = 0; i < count; i++) {
+				int row = candidates == null ? i : candidates[i];
+				if (!deleted.get(row) && filter.test(rows.get(row).metadata())) {
+					matching.add(rows.get(row).id());
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		return matching;
+	}
+
+	@Override
+	public List<Document> doSimilaritySearch(SearchRequest request) {
+		float[] query = normalize(this.embeddingModel.embed(request.getQuery()));
+		Predicate<Map<String, Object>> filter = request.hasFilterExpression()
+				? metadataFilter(request.getFilterExpression()) : null;
+		int topK = request.getTopK();
+		float threshold = (float) request.getSimilarityThreshold();
+
+		lock.readLock().lock();
+		try {
+			if (vectors == null || rows.isEmpty()) {
+				return List.of();
+			}
+			checkDimensions(query);
+			IntPredicate accept = row -> !deleted.get(row) && (filter == null || filter.test(rows.get(row).metadata()));
+			int[] candidates = filter != null ? partitionRows(request.getFilterExpression()) : null;
+			List<ScoredRow> hits;
+			if (candidates != null) {
+				hits = exactIndex.search(query, topK, threshold, accept, candidates);
+			} else {
+				// Metadata filters may reject most rows, which approximate indexes handle poorly
+				hits = (filter != null ? exactIndex : index).search(query, topK, threshold, accept);
+			}
+			List<Document> results = new ArrayList<>(hits.size());
+			for (ScoredRow hit : hits) {
+				results.add(toDocument(hit.row(), hit.score()));
+			}
+			return results;
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to read from vector index " + directory, ex);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+		return VectorStoreObservationContext.builder("zentriq-mapped", operationName)
+			.collectionName(directory.toString())
+			.similarityMetric(VectorStoreSimilarityMetric.COSINE.value());
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (vectors != null) {
+				index.save();
+				vectors.close();
+				documents.close();
+			}
+			if (searchPool != null) {
+				searchPool.shutdown();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void open() {
+		try {
+			Files.createDirectories(directory);
+			vectors = new VectorFile(directory.resolve(VECTOR_FILE));
+			documents = new DocumentFile(directory.resolve(DOCUMENT_FILE), objectMapper);
+			documents.replay(new DocumentFile.Visitor() {
+				@Override
+				public void document(String id, Map<String, Object> metadata, DocumentFile.Location location) {
+					int row = rows.size();
+					Integer previous = rowById.put(id, row);
+					if (previous != null) {
+						deleted.set(previous);
+					}
+					rows.add(new Row(id, metadata, location));
+					addToPartitions(row, metadata);
+				}
+
+				@Override
+				public void deleted(String id) {
+					Integer row = rowById.remove(id);
+					if (row != null) {
+						deleted.set(row);
+					}
+				}
+			});
+			// A crash between the vector and the document write can leave one file a row ahead
+			if (vectors.size() < rows.size()) {
+				throw new IOException("Vector file has " + vectors.size() + " rows but document file has "
+						+ rows.size() + "; the index in " + directory + " is corrupt");
+			}
+			vectors.truncate(rows.size());
+			openIndex();
+		} catch (IOException ex) {
+			throw new UncheckedIOException("Failed to open vector index " + directory, ex);
+		}
+	}
+
+	private void openIndex() throws IOException {
+		exactIndex = new ExactVectorIndex(vectors, searchPool);
+		if (quantization != null) {
+			QuantizedVectorIndex codes = new QuantizedVectorIndex(vectors, quantization.encoding(),
+					quantization.oversample());
+			long start = System.nanoTime();
+			for (int row = 0; row < vectors.size(); row++) {
+				codes.add(row, vectors.read(row));
+			}
+			logger.info("Built {} codes over {} vectors in {} ms: {} KB, {} KB as floats", codes.encoding(),
+					vectors.size(), (System.nanoTime() - start) / 1_000_000, codes.memoryBytes() / 1024,
+					(long) vectors.size() * vectors.dimensions() * 4 / 1024);
+			index = codes;
+			return;
+		}
+		if (hnsw == null) {
+			index = exactIndex;
+			return;
+		}
+		HnswVectorIndex graph = new HnswVectorIndex(vectors, directory.resolve(GRAPH_FILE), hnsw.m(),
+				hnsw.efConstruction(), hnsw.efSearch());
+		if (!graph.load()) {
+			long start = System.nanoTime();
+			for (int row = 0; row < vectors.size(); row++) {
+				graph.add(row, vectors.read(row));
+			}
+			logger.info("Rebuilt HNSW graph over {} vectors in {} ms", vectors.size(),
+					(System.nanoTime() - start) / 1_000_000);
+		}
+		index = graph;
+	}
+
+	private void ensureOpen() {
+		if (vectors == null) {
+			open();
+		}
+	}
+
+	private Document toDocument(int row) throws IOException {
+		Row entry = rows.get(row);
+		return Document.builder()
+			.id(entry.id())
+			.text(documents.readText(entry.location()))
+			.metadata(new HashMap<>(entry.metadata()))
+			.build();
+	}
+
+	private Document toDocument(int row, float score) throws IOException {
+		Row entry = rows.get(row);
+		Map<String, Object> metadata = new HashMap<>(entry.metadata());
+		metadata.put(DocumentMetadata.DISTANCE.value(), 1.0 - score);
+		return Document.builder()
+			.id(entry.id())
+			.text(documents.readText(entry.location()))
+			.metadata(metadata)
+			.score((double) score)
+			.build();
+	}
+
+	// A string value as the inside of a SpEL '...' literal, where a quote is written twice
+	static String escapeQuotes(String value) {
+		return value.replace("'", "''");
+	}
+
+	private Predicate<Map<String, Object>> metadataFilter(Filter.Expression filterExpression) {
+		Expression expression = expressionParser
+			.parseExpression(filterExpressionConverter.convertExpression(filterExpression));
+		return metadata -> {
+			StandardEvaluationContext context = new StandardEvaluationContext();
+			context.setVariable("metadata", metadata);
+			return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+		};
+	}
+
+	private void addToPartitions(int row, Map<String, Object> metadata) {
+		partitions.forEach((field, values) -> {
+			Object value = metadata.get(field);
+			if (value != null) {
+				values.computeIfAbsent(value.toString(), key -> new RowList()).add(row);
+			}
+		});
+	}
+
+	/**
+	 * Rows that can match the filter according to the partitions, ascending, or null when the
+	 * filter does not pin a partitioned field. The caller still tests each row against the filter.
+	 */
+	private int[] partitionRows(Filter.Operand operand) {
+		if (operand instanceof Filter.Group group) {
+			return partitionRows(group.content());
+		}
+		if (!(operand instanceof Filter.Expression expression)) {
+			return null;
+		}
+		switch (expression.type()) {
+			case AND: {
+				int[] left = partitionRows(expression.left());
+				int[] right = partitionRows(expression.right());
+				return left == null ? right : right == null ? left : intersect(left, right);
+			}
+			case OR: {
+				int[] left = partitionRows(expression.left());
+				int[] right = partitionRows(expression.right());
+				return left == null || right == null ? null : union(left, right);
+			}
+			case EQ:
+			case IN: {
+				if (!(expression.left() instanceof Filter.Key key)
+						|| !(expression.right() instanceof Filter.Value value)) {
+					return null;
+				}
+				Map<String, RowList> values = partitions.get(unquote(key.key()));
+				if (values == null) {
+					return null;
+				}
+				List<?> wanted = value.value() instanceof List<?> list ? list : List.of(value.value());
+				int[] matching = new int[0];
+				for (Object wantedValue : wanted) {
+					RowList partition = values.get(String.valueOf(wantedValue));
+					if (partition != null) {
+						matching = union(matching, partition.toArray());
+					}
+				}
+				return matching;
+			}
+			default:
+				return null;
+		}
+	}
+
+	// Keys parsed from filter text may keep their quotes
+	private static String unquote(String key) {
+		char first = key.isEmpty() ? 0 : key.charAt(0);
+		if (key.length() >= 2 && (first == '"' || first == '\'') && key.charAt(key.length() - 1) == first) {
+			return key.substring(1, key.length() - 1);
+		}
+		return key;
+	}
+
+	// Both inputs ascending and free of duplicates, as is the result
+	static int[] union(int[] a, int[] b) {
+		int[] merged = new int[a.length + b.length];
+		int i = 0, j = 0, n = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				merged[n++] = a[i++];
+			} else if (i == a.length || b[j] < a[i]) {
+				merged[n++] = b[j++];
+			} else {
+				merged[n++] = a[i++];
+				j++;
+			}
+		}
+		return n == merged.length ? merged : Arrays.copyOf(merged, n);
+	}
+
+	static int[] intersect(int[] a, int[] b) {
+		int[] common = new int[Math.min(a.length, b.length)];
+		int i = 0, j = 0, n = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (b[j] < a[i]) {
+				j++;
+			} else {
+				common[n++] = a[i++];
+				j++;
+			}
+		}
+		return Arrays.copyOf(common, n);
+	}
+
+	private void checkDimensions(float[] query) {
+		if (query.length != vectors.dimensions()) {
+			throw new IllegalArgumentException("Query embedding has " + query.length
+					+ " dimensions, index expects " + vectors.dimensions());
+		}
+	}
+
+	// Unit-length copy of the vector (the vector itself if all zeros), as stored and searched here
+	public static float[] normalize(float[] vector) {
+		double sum = 0;
+		for (float v : vector) {
+			sum += v * v;
+		}
+		if (sum == 0) {
+			return vector;
+		}
+		float scale = (float) (1.0 / Math.sqrt(sum));
+		float[] normalized = new float[vector.length];
+		for (int i = 0; i < vector.length; i++) {
+			normalized[i] = vector[i] * scale;
+		}
+		return normalized;
+	}
+
+	// Dot product with the selected similarity kernel; the cosine similarity of normalised vectors
+	public static float dot(float[] a, float[] b) {
+		return VectorKernel.get().dot(a, b);
+	}
+
+	// Growable list of row numbers, appended in ascending order
+	private static final class RowList {
+
+		private int[] rows = new int[8];
+		private int size;
+
+		void add(int row) {
+			if (size == rows.length) {
+				rows = Arrays.copyOf(rows, size * 2);
+			}
+			rows[size++] = row;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(rows, size);
+		}
+	}
+
+	public static final class Builder extends AbstractVectorStoreBuilder<Builder> {
+
+		private Path directory;
+		private Hnsw hnsw;
+		private List<String> partitionFields = List.of();
+		private int parallelism = 1;
+
+		private Quantization quantization;
+
+		private record Hnsw(int m, int efConstruction, int efSearch) {
+		}
+
+		private record Quantization(QuantizedVectorIndex.Encoding encoding, int oversample) {
+		}
+
+		private Builder(EmbeddingModel embeddingModel) {
+			super(embeddingModel);
+		}
+
+		// Folder holding vectors.bin and documents.jsonl; created on first add
+		public Builder directory(Path directory) {
+			this.directory = directory;
+			return this;
+		}
+
+		/**
+		 * Search with an HNSW graph instead of a full scan. Larger values of any parameter raise
+		 * recall at the cost of memory (m), indexing time (efConstruction) or query time (efSearch).
+		 */
+		public Builder hnsw(int m, int efConstruction, int efSearch) {
+			this.hnsw = new Hnsw(m, efConstruction, efSearch);
+			return this;
+		}
+
+		/**
+		 * Scan int8 codes (a quarter of the float size) instead of the vectors, rescoring the best
+		 * {@code topK * oversample} rows at full precision.
+		 */
+		public Builder int8(int oversample) {
+			this.quantization = new Quantization(QuantizedVectorIndex.Encoding.INT8, oversample);
+			return this;
+		}
+
+		/**
+		 * Scan sign bits by Hamming distance (1/32 of the float size), rescoring the best
+		 * {@code topK * oversample} rows at full precision. Needs more oversampling than int8 for the same recall.
+		 */
+		public Builder binary(int oversample) {
+			this.quantization = new Quantization(QuantizedVectorIndex.Encoding.BINARY, oversample);
+			return this;
+		}
+
+		/**
+		 * Threads for exact scans (0 = one per core, 1 = the caller's thread only). Scans longer
+		 * than one vector file segment are split by segment and merged.
+		 */
+		public Builder parallelism(int parallelism) {
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		// Metadata fields whose values get their own partition, e.g. "filename"
+		public Builder partitionBy(String... fields) {
+			this.partitionFields = List.of(fields);
+			return this;
+		}
+
+		@Override
+		public MappedVectorStore build() {
+			if (directory == null) {
+				throw new IllegalArgumentException("Vector index directory must be set");
+			}
+			if (hnsw != null && quantization != null) {
+				throw new IllegalArgumentException("Choose either an HNSW graph or quantized codes, not both");
+			}
+			return new MappedVectorStore(this);
+		}
+	}
+}
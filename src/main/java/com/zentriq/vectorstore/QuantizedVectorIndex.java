@@ -0,0 +1,156 @@
+package com.zentriq.vectorstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Full scan over a compressed copy of the vectors, rescored at full precision.
+ *
+ * Each row is kept on the heap either as int8 codes with a per-row scale (4x smaller than the
+ * floats) or as sign bits compared by Hamming distance (32x smaller). A search ranks every row
+ * by the cheap approximate score, keeps the best {@code topK * oversample} and rescores only
+ * those with the float vectors from the {@link VectorFile}, so the mapped file is touched for a
+ * handful of rows per query. Codes are derived from the vector file and rebuilt on open.
+ */
+final class QuantizedVectorIndex implements VectorIndex {
+
+	enum Encoding {
+		INT8, BINARY
+	}
+
+	private static final Comparator<ScoredRow> BY_SCORE = Comparator.comparingDouble(ScoredRow::score);
+
+	private final VectorFile vectors;
+	private final Encoding encoding;
+	private final int oversample;
+
+	// Fixed by the first row
+	private int dimensions;
+	private int words; // longs per binary code
+	private int count;
+	private byte[] codes = new byte[0];
+	private float[] scales = new float[0];
+	private long[] bits = new long[0];
+
+	QuantizedVectorIndex(VectorFile vectors, Encoding encoding, int oversample) {
+		this.vectors = vectors;
+		this.encoding = encoding;
+		this.oversample = Math.max(1, oversample);
+	}
+
+	@Override
+	public void add(int row, float[] vector) {
+		if (dimensions == 0) {
+			dimensions = vector.length;
+			words = (dimensions + 63) / 64;
+		}
+		ensureCapacity(row + 1);
+		count = Math.max(count, row + 1);
+		if (encoding == Encoding.INT8) {
+			float max = 0;
+			for (float v : vector) {
+				max = Math.max(max, Math.abs(v));
+			}
+			float scale = max == 0 ? 1 : max / 127;
+			int offset = row * dimensions;
+			for (int i = 0; i < dimensions; i++) {
+				codes[offset + i] = (byte) Math.round(vector[i] / scale);
+			}
+			scales[row] = scale;
+		} else {
+			encodeBits(vector, bits, row * words);
+		}
+	}
+
+	@Override
+	public void remove(int row) {
+		// Removed rows are rejected by the accept predicate
+	}
+
+	@Override
+	public List<ScoredRow> search(float[] query, int topK, float threshold, IntPredicate accept) {
+		int candidates = topK * oversample;
+		// Min-heap of the best candidates by approximate score
+		PriorityQueue<ScoredRow> best = new PriorityQueue<>(candidates + 1, BY_SCORE);
+		long[] queryBits = null;
+		if (encoding == Encoding.BINARY) {
+			queryBits = new long[words];
+			encodeBits(query, queryBits, 0);
+		}
+		for (int row = 0; row < count; row++) {
+			if (!accept.test(row)) {
+				continue;
+			}
+			float score = encoding == Encoding.INT8 ? int8Score(query, row) : -hamming(queryBits, row);
+			if (best.size() < candidates) {
+				best.offer(new ScoredRow(row, score));
+			} else if (score > best.peek().score()) {
+				best.poll();
+				best.offer(new ScoredRow(row, score));
+			}
+		}
+
+		// Exact scores for the survivors
+		float[] candidate = new float[dimensions];
+		List<ScoredRow> hits = new ArrayList<>(best.size());
+		for (ScoredRow approximate : best) {
+			vectors.read(approximate.row(), candidate);
+			float score = MappedVectorStore.dot(query, candidate);
+			if (score >= threshold) {
+				hits.add(new ScoredRow(approximate.row(), score));
+			}
+		}
+		hits.sort(BY_SCORE.reversed());
+		return hits.size() > topK ? new ArrayList<>(hits.subList(0, topK)) : hits;
+	}
+
+	// Heap taken by the codes, to compare with the float vectors they stand in for
+	long memoryBytes() {
+		return encoding == Encoding.INT8 ? (long) count * dimensions + count * 4L : (long) count * words * 8;
+	}
+
+	Encoding encoding() {
+		return encoding;
+	}
+
+	private float int8Score(float[] query, int row) {
+		return VectorKernel.get().dot(query, codes, row * dimensions) * scales[row];
+	}
+
+	private int hamming(long[] queryBits, int row) {
+		int offset = row * words;
+		int distance = 0;
+		for (int i = 0; i < words; i++) {
+			distance += Long.bitCount(queryBits[i] ^ bits[offset + i]);
+		}
+		return distance;
+	}
+
+	// One bit per dimension, set where the component is positive
+	private void encodeBits(float[] vector, long[] target, int offset) {
+		Arrays.fill(target, offset, offset + words, 0L);
+		for (int i = 0; i < dimensions; i++) {
+			if (vector[i] > 0) {
+				target[offset + (i >>> 6)] |= 1L << (i & 63);
+			}
+		}
+	}
+
+	private void ensureCapacity(int rows) {
+		int capacity = encoding == Encoding.INT8 ? scales.length : bits.length / Math.max(1, words);
+		if (rows <= capacity) {
+			return;
+		}
+		int grown = Math.max(rows, Math.max(16, capacity + (capacity >> 1)));
+		if (encoding == Encoding.INT8) {
+			codes = Arrays.copyOf(codes, Math.multiplyExact(grown, dimensions));
+			scales = Arrays.copyOf(scales, grown);
+		} else {
+			bits = Arrays.copyOf(bits, Math.multiplyExact(grown, words));
+		}
+	}
+}
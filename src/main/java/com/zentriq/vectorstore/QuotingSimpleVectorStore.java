@@ -0,0 +1,59 @@
+package com.zentriq.vectorstore;
+
+import java.util.List;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+/**
+ * {@link SimpleVectorStore} that accepts filter values containing single quotes, such as the file
+ * name {@code O'Brien notes.txt}. The base store turns filters into SpEL with every string value
+ * between single quotes as it is, so a quote in the value ends the literal early and the search
+ * fails. Here string values are escaped SpEL-style ({@code ''}) before the filter is converted.
+ */
+public class QuotingSimpleVectorStore extends SimpleVectorStore {
+
+	public QuotingSimpleVectorStore(EmbeddingModel embeddingModel) {
+		super(SimpleVectorStore.builder(embeddingModel));
+	}
+
+	@Override
+	public List<Document> doSimilaritySearch(SearchRequest request) {
+		if (request.getFilterExpression() == null) {
+			return super.doSimilaritySearch(request);
+		}
+		return super.doSimilaritySearch(
+				SearchRequest.from(request).filterExpression(escape(request.getFilterExpression())).build());
+	}
+
+	private static Filter.Expression escape(Filter.Expression expression) {
+		return new Filter.Expression(expression.type(), escape(expression.left()),
+				expression.right() == null ? null : escape(expression.right()));
+	}
+
+	private static Filter.Operand escape(Filter.Operand operand) {
+		if (operand instanceof Filter.Expression expression) {
+			return escape(expression);
+		}
+		if (operand instanceof Filter.Group group) {
+			return new Filter.Group(escape(group.content()));
+		}
+		if (operand instanceof Filter.Value value) {
+			return new Filter.Value(escape(value.value()));
+		}
+		return operand; // a key
+	}
+
+	private static Object escape(Object value) {
+		if (value instanceof String text) {
+			return MappedVectorStore.escapeQuotes(text);
+		}
+		if (value instanceof List<?> list) {
+			return list.stream().map(QuotingSimpleVectorStore::escape).toList();
+		}
+		return value;
+	}
+}
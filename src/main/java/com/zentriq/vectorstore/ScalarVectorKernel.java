@@ -0,0 +1,40 @@
+package com.zentriq.vectorstore;
+
+/**
+ * Plain Java loops; the JIT may still auto-vectorise some of them.
+ */
+final class ScalarVectorKernel extends VectorKernel {
+
+	@Override
+	String name() {
+		return "scalar";
+	}
+
+	@Override
+	float dot(float[] a, float[] b) {
+		float sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+	@Override
+	float dot(float[] a, byte[] codes, int offset) {
+		float sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * codes[offset + i];
+		}
+		return sum;
+	}
+
+	@Override
+	float squaredDistance(float[] a, float[] b) {
+		float sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			float d = a[i] - b[i];
+			sum += d * d;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,7 @@
+package com.zentriq.vectorstore;
+
+/**
+ * A row of the vector file together with its similarity to the current query.
+ */
+record ScoredRow(int row, float score) {
+}
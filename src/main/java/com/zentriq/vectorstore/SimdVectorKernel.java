@@ -0,0 +1,77 @@
+package com.zentriq.vectorstore;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels on the Vector API at the CPU's preferred width (e.g. 8 floats per AVX2 register),
+ * accumulating with fused multiply-adds; the tail shorter than one register is done in scalar code.
+ * Only loaded by {@link VectorKernel} when {@code jdk.incubator.vector} is on the module graph.
+ */
+final class SimdVectorKernel extends VectorKernel {
+
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+	// Bytes widened to one float register per step; below 8 lanes there is no byte shape to load from
+	private static final VectorSpecies<Byte> BYTES = FLOATS.length() >= 8
+			? VectorSpecies.of(byte.class, VectorShape.forBitSize(FLOATS.length() * 8)) : null;
+
+	@Override
+	String name() {
+		return "SIMD (" + FLOATS.vectorBitSize() + "-bit)";
+	}
+
+	@Override
+	float dot(float[] a, float[] b) {
+		FloatVector sum = FloatVector.zero(FLOATS);
+		int i = 0;
+		for (int bound = FLOATS.loopBound(a.length); i < bound; i += FLOATS.length()) {
+			FloatVector va = FloatVector.fromArray(FLOATS, a, i);
+			FloatVector vb = FloatVector.fromArray(FLOATS, b, i);
+			sum = va.fma(vb, sum);
+		}
+		float result = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < a.length; i++) {
+			result += a[i] * b[i];
+		}
+		return result;
+	}
+
+	@Override
+	float dot(float[] a, byte[] codes, int offset) {
+		FloatVector sum = FloatVector.zero(FLOATS);
+		int i = 0;
+		if (BYTES != null) {
+			for (int bound = FLOATS.loopBound(a.length); i < bound; i += FLOATS.length()) {
+				FloatVector va = FloatVector.fromArray(FLOATS, a, i);
+				FloatVector vb = (FloatVector) ByteVector.fromArray(BYTES, codes, offset + i)
+					.convertShape(VectorOperators.B2F, FLOATS, 0);
+				sum = va.fma(vb, sum);
+			}
+		}
+		float result = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < a.length; i++) {
+			result += a[i] * codes[offset + i];
+		}
+		return result;
+	}
+
+	@Override
+	float squaredDistance(float[] a, float[] b) {
+		FloatVector sum = FloatVector.zero(FLOATS);
+		int i = 0;
+		for (int bound = FLOATS.loopBound(a.length); i < bound; i += FLOATS.length()) {
+			FloatVector diff = FloatVector.fromArray(FLOATS, a, i).sub(FloatVector.fromArray(FLOATS, b, i));
+			sum = diff.fma(diff, sum);
+		}
+		float result = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < a.length; i++) {
+			float d = a[i] - b[i];
+			result += d * d;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,84 @@
+package com.zentriq.vectorstore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded min-heap of the {@code k} best (row, score) pairs, kept in primitive arrays so that
+ * scanning millions of rows allocates nothing. The root is the worst score kept, so most rows
+ * are rejected by a single comparison once the heap is full.
+ */
+final class TopK {
+
+	private final int[] rows;
+	private final float[] scores;
+	private int size;
+
+	TopK(int k) {
+		this.rows = new int[k];
+		this.scores = new float[k];
+	}
+
+	void offer(int row, float score) {
+		if (size < rows.length) {
+			int i = size++;
+			// Sift up
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (scores[parent] <= score) {
+					break;
+				}
+				rows[i] = rows[parent];
+				scores[i] = scores[parent];
+				i = parent;
+			}
+			rows[i] = row;
+			scores[i] = score;
+		} else if (size > 0 && score > scores[0]) {
+			siftDown(row, score);
+		}
+	}
+
+	// Merge another heap's entries into this one
+	void addAll(TopK other) {
+		for (int i = 0; i < other.size; i++) {
+			offer(other.rows[i], other.scores[i]);
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	// Best first
+	List<ScoredRow> toList() {
+		List<ScoredRow> hits = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			hits.add(new ScoredRow(rows[i], scores[i]));
+		}
+		hits.sort((a, b) -> Float.compare(b.score(), a.score()));
+		return hits;
+	}
+
+	// Replace the root and restore the heap order
+	private void siftDown(int row, float score) {
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && scores[child + 1] < scores[child]) {
+				child++;
+			}
+			if (score <= scores[child]) {
+				break;
+			}
+			rows[i] = rows[child];
+			scores[i] = scores[child];
+			i = child;
+		}
+		rows[i] = row;
+		scores[i] = score;
+	}
+}
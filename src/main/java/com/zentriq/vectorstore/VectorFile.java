@@ -0,0 +1,142 @@
+package com.zentriq.vectorstore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only file of fixed-width float vectors, memory-mapped so embeddings stay off the heap.
+ *
+ * Layout: a 64 byte header (magic, version, dimensions, row count) followed by rows of
+ * {@code dimensions} little-endian floats stored back to back. The file is mapped in
+ * segments of {@link #ROWS_PER_SEGMENT} rows so a single index is never limited to 2 GB.
+ * Appends are expected to be serialised by the caller; reads may run concurrently.
+ */
+final class VectorFile implements Closeable {
+
+	private static final int MAGIC = 0x5A565331; // "ZVS1"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 64;
+	private static final int DIMENSIONS_OFFSET = 8;
+	private static final int COUNT_OFFSET = 12;
+
+	static final int ROWS_PER_SEGMENT = 16384;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private final List<MappedByteBuffer> mapped = new ArrayList<>();
+
+	// Float views of the mapped segments, replaced (never mutated) when a segment is added
+	private volatile FloatBuffer[] segments = new FloatBuffer[0];
+	private volatile int dimensions;
+	private volatile int size;
+
+	VectorFile(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		boolean fresh = channel.size() == 0;
+		this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+		header.order(ByteOrder.LITTLE_ENDIAN);
+		if (fresh) {
+			header.putInt(0, MAGIC);
+			header.putInt(4, VERSION);
+		} else if (header.getInt(0) != MAGIC) {
+			throw new IOException("Not a Zentriq vector file: " + file);
+		}
+		this.dimensions = header.getInt(DIMENSIONS_OFFSET);
+		this.size = header.getInt(COUNT_OFFSET);
+		if (dimensions > 0) {
+			ensureCapacity(size);
+		}
+	}
+
+	int dimensions() {
+		return dimensions;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Append one vector and return its row number. The first append fixes the dimensions.
+	 */
+	int append(float[] vector) throws IOException {
+		if (dimensions == 0) {
+			dimensions = vector.length;
+			header.putInt(DIMENSIONS_OFFSET, dimensions);
+		} else if (vector.length != dimensions) {
+			throw new IllegalArgumentException(
+					"Embedding has " + vector.length + " dimensions, index expects " + dimensions);
+		}
+		int row = size;
+		ensureCapacity(row + 1);
+		segments[row / ROWS_PER_SEGMENT].put((row % ROWS_PER_SEGMENT) * dimensions, vector);
+		size = row + 1;
+		header.putInt(COUNT_OFFSET, size);
+		return row;
+	}
+
+	/**
+	 * Copy row {@code row} into {@code target}, which must hold at least {@link #dimensions()} floats.
+	 */
+	void read(int row, float[] target) {
+		segments[row / ROWS_PER_SEGMENT].get((row % ROWS_PER_SEGMENT) * dimensions, target, 0, dimensions);
+	}
+
+	float[] read(int row) {
+		float[] vector = new float[dimensions];
+		read(row, vector);
+		return vector;
+	}
+
+	/**
+	 * Drop rows past {@code newSize}, e.g. vectors whose document record never made it to disk.
+	 */
+	void truncate(int newSize) {
+		if (newSize < size) {
+			size = newSize;
+			header.putInt(COUNT_OFFSET, size);
+		}
+	}
+
+	// Flush dirty pages so a crash cannot lose rows that the document file already references
+	void force() {
+		header.force();
+		for (MappedByteBuffer segment : mapped) {
+			segment.force();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+	private void ensureCapacity(int rows) throws IOException {
+		int needed = (rows + ROWS_PER_SEGMENT - 1) / ROWS_PER_SEGMENT;
+		if (needed <= segments.length) {
+			return;
+		}
+		FloatBuffer[] grown = Arrays.copyOf(segments, needed);
+		long segmentBytes = (long) ROWS_PER_SEGMENT * dimensions * Float.BYTES;
+		for (int i = segments.length; i < needed; i++) {
+			// Mapping past the end of the file grows it
+			MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE,
+					HEADER_BYTES + i * segmentBytes, segmentBytes);
+			segment.order(ByteOrder.LITTLE_ENDIAN);
+			mapped.add(segment);
+			grown[i] = segment.asFloatBuffer();
+		}
+		segments = grown;
+	}
+}
@@ -0,0 +1,27 @@
+package com.zentriq.vectorstore;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Search structure over the rows of a {@link VectorFile}. Implementations are told about
+ * every appended row and answer top-K queries with cosine similarity (vectors are normalised).
+ * {@link MappedVectorStore} serialises {@link #add} and {@link #remove}; searches may run
+ * concurrently with each other but never with a mutation.
+ */
+interface VectorIndex {
+
+	void add(int row, float[] vector);
+
+	void remove(int row);
+
+	/**
+	 * Best {@code topK} accepted rows scoring at least {@code threshold}, highest first.
+	 */
+	List<ScoredRow> search(float[] query, int topK, float threshold, IntPredicate accept);
+
+	// Persist any state that is expensive to rebuild
+	default void save() throws IOException {
+	}
+}
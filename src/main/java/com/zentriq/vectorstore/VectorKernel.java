@@ -0,0 +1,60 @@
+package com.zentriq.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Similarity kernels behind every search of the vector indexes.
+ *
+ * {@link #get()} picks the implementation once, on first use: {@link SimdVectorKernel} on top
+ * of the Vector API if the JVM was started with {@code --add-modules jdk.incubator.vector} (the
+ * Maven build and {@code spring-boot:run} do this), plain loops otherwise. {@code -Dzentriq.simd=false}
+ * forces the plain loops.
+ */
+abstract class VectorKernel {
+
+	private static final Logger logger = LoggerFactory.getLogger(VectorKernel.class);
+
+	// In a holder so that constructing a kernel directly (as benchmarks do) does not recurse into the selection
+	private static final class Selected {
+		static final VectorKernel INSTANCE = select();
+	}
+
+	static VectorKernel get() {
+		return Selected.INSTANCE;
+	}
+
+	abstract String name();
+
+	// Sum of a[i] * b[i]; both arrays have the same length
+	abstract float dot(float[] a, float[] b);
+
+	// Sum of a[i] * codes[offset + i] over a.length codes, for int8-quantized rows
+	abstract float dot(float[] a, byte[] codes, int offset);
+
+	// Sum of (a[i] - b[i])^2
+	abstract float squaredDistance(float[] a, float[] b);
+
+	// Cosine similarity; 0 if either vector is all zeros
+	float cosine(float[] a, float[] b) {
+		float norms = dot(a, a) * dot(b, b);
+		return norms == 0 ? 0 : (float) (dot(a, b) / Math.sqrt(norms));
+	}
+
+	private static VectorKernel select() {
+		VectorKernel kernel = new ScalarVectorKernel();
+		if (Boolean.parseBoolean(System.getProperty("zentriq.simd", "true"))) {
+			try {
+				// By name, so this class still loads when the incubator module is absent
+				kernel = (VectorKernel) Class.forName(VectorKernel.class.getPackageName() + ".SimdVectorKernel")
+					.getDeclaredConstructor()
+					.newInstance();
+			} catch (ReflectiveOperationException | LinkageError ex) {
+				logger.info("Vector API unavailable ({}), start with --add-modules jdk.incubator.vector for SIMD search",
+						ex.getClass().getSimpleName());
+			}
+		}
+		logger.info("Similarity kernel: {}", kernel.name());
+		return kernel;
+	}
+}
@@ -0,0 +1,85 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+
+import com.zentriq.support.HashingEmbeddingModel;
+import com.zentriq.vectorstore.MappedVectorStore;
+
+class Bm25IndexTests {
+
+	@TempDir
+	Path indexDir;
+
+	@Test
+	void codesMatchWholeAndByPart() {
+		List<String> terms = new ArrayList<>();
+		Bm25Index.tokenize("Replace part PN-3342-A.", terms::add);
+		assertThat(terms).containsExactly("replace", "part", "pn", "3342", "a", "pn-3342-a");
+
+		Bm25Index index = new Bm25Index();
+		index.add("seal", "Fault E-4711: the shaft seal is worn, order part PN-3342-A.");
+		index.add("oil", "Check the oil level of the pump every week.");
+		index.add("filter", "Part PN-3342-B is the replacement filter for the pump.");
+
+		assertThat(index.search("what is pn-3342-a", 3)).extracting(Bm25Index.Hit::id).first().isEqualTo("seal");
+		assertThat(index.search("E-4711", 3)).extracting(Bm25Index.Hit::id).containsExactly("seal");
+
+		index.remove("seal");
+		assertThat(index.search("E-4711", 3)).isEmpty();
+		assertThat(index.size()).isEqualTo(2);
+	}
+
+	@Test
+	void compactsOnceMostEntriesAreDead() {
+		Bm25Index index = new Bm25Index();
+		String[] revisions = { "alpha", "beta", "gamma", "delta", "omega" };
+		for (String revision : revisions) {
+			// Every chunk re-indexed, as when a watched folder is edited over and over
+			for (int i = 0; i < 1000; i++) {
+				index.add("chunk-" + i, "pump " + (i % 7 == 0 ? "valve " : "") + "part PN-" + i + " " + revision);
+			}
+		}
+		index.remove("chunk-0");
+
+		assertThat(index.size()).isEqualTo(999);
+		assertThat(index.slots()).isLessThan(2 * 1000 + 1024);
+		assertThat(index.search("PN-42", 3)).extracting(Bm25Index.Hit::id).first().isEqualTo("chunk-42");
+		assertThat(index.search("valve", 200)).hasSize(142)
+			.allMatch(hit -> !hit.id().equals("chunk-0") && hit.score() > 0);
+		assertThat(index.search("omega", 2000)).hasSize(999);
+		assertThat(index.search("alpha", 10)).isEmpty(); // only in entries replaced since
+	}
+
+	@Test
+	void hybridRetrievalFindsKeywordOnlyHitsFromTheStore() throws Exception {
+		try (MappedVectorStore store = MappedVectorStore.builder(new HashingEmbeddingModel(64)).directory(indexDir).build()) {
+			List<Document> docs = new ArrayList<>();
+			for (int i = 1; i <= 12; i++) {
+				docs.add(new Document("step-" + i, "pump maintenance schedule step " + i + ": check the oil level", Map.of()));
+			}
+			docs.add(new Document("fault", "Fault E-4711 means the shaft seal is worn", Map.of()));
+			// Added straight to the store, as in an earlier session: the retriever has to rebuild its keyword index
+			store.add(docs);
+
+			// One chunk was also indexed by an ingestion running before the rebuild
+			Bm25Index bm25Index = new Bm25Index();
+			bm25Index.add("fault", "Fault E-4711 means the shaft seal is worn");
+			HybridRetriever retriever = new HybridRetriever(store, bm25Index, 3, 3, 0, 60);
+			List<Document> results = retriever.retrieve("pump maintenance: what does fault E-4711 mean?");
+			assertThat(bm25Index.slots()).isEqualTo(bm25Index.size()).isEqualTo(13);
+
+			assertThat(results).hasSize(3).extracting(Document::getId).contains("fault");
+			assertThat(results).filteredOn(doc -> doc.getId().equals("fault")).first()
+				.extracting(Document::getText).isEqualTo("Fault E-4711 means the shaft seal is worn");
+		}
+	}
+}
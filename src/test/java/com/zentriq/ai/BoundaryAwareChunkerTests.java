@@ -0,0 +1,67 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class BoundaryAwareChunkerTests {
+
+	private static final String TEXT = buildText();
+
+	@Test
+	void chunksFitTheBudgetAndEndOnSentences() {
+		List<String> chunks = split(new BoundaryAwareChunker(40, 0), TEXT, TEXT.length());
+
+		assertThat(chunks).hasSizeGreaterThan(3);
+		for (String chunk : chunks) {
+			assertThat(TokenCounter.count(chunk)).isLessThanOrEqualTo(40);
+			assertThat(chunk).endsWith(".");
+		}
+		// Without overlap nothing but the whitespace at the cuts is lost or repeated
+		assertThat(String.join(" ", chunks).replaceAll("\\s+", " ")).isEqualTo(TEXT.replaceAll("\\s+", " "));
+	}
+
+	@Test
+	void overlapRepeatsTrailingSentence() {
+		List<String> chunks = split(new BoundaryAwareChunker(40, 16), TEXT, TEXT.length());
+
+		for (int i = 1; i < chunks.size(); i++) {
+			String previous = chunks.get(i - 1);
+			String lastSentence = previous.substring(previous.lastIndexOf(". ", previous.length() - 2) + 2);
+			assertThat(chunks.get(i)).startsWith(lastSentence);
+		}
+	}
+
+	@Test
+	void streamingMatchesOneShot() {
+		Chunker chunker = new BoundaryAwareChunker(40, 16);
+		assertThat(split(chunker, TEXT, 17)).containsExactlyElementsOf(split(chunker, TEXT, TEXT.length()));
+	}
+
+	// Feed text to the chunker in pieces of pieceLength, as ChunkBuffer does
+	private static List<String> split(Chunker chunker, String text, int pieceLength) {
+		List<String> chunks = new ArrayList<>();
+		StringBuilder pending = new StringBuilder();
+		for (int from = 0; from < text.length(); from += pieceLength) {
+			pending.append(text, from, Math.min(text.length(), from + pieceLength));
+			int consumed = chunker.split(pending, false, (start, end) -> chunks.add(pending.substring(start, end)));
+			pending.delete(0, consumed);
+		}
+		chunker.split(pending, true, (start, end) -> chunks.add(pending.substring(start, end)));
+		return chunks;
+	}
+
+	private static String buildText() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 1; i <= 30; i++) {
+			text.append("Valve ").append(i).append(" must be inspected every ").append(i * 3).append(" days. ");
+			if (i % 7 == 0) {
+				text.append("\n\n");
+			}
+		}
+		return text.toString().strip();
+	}
+}
@@ -0,0 +1,90 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.zentriq.support.HashingEmbeddingModel;
+
+class CachingEmbeddingModelTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void onlyMissesReachTheDelegate() {
+		HashingEmbeddingModel ollama = new HashingEmbeddingModel(16);
+		CachingEmbeddingModel cache = new CachingEmbeddingModel(ollama, "nomic-embed-text", 100, null);
+
+		float[] first = cache.embed("what is the warranty period");
+		float[] second = cache.embed("what is the warranty period");
+		List<float[]> batch = cache.embed(List.of("what is the warranty period", "new text", "new text"));
+
+		assertThat(second).isEqualTo(first);
+		assertThat(batch.get(0)).isEqualTo(first);
+		assertThat(ollama.getEmbeddedTexts()).isEqualTo(2);
+		assertThat(cache.getMemoryHits()).isEqualTo(2);
+		assertThat(cache.getMisses()).isEqualTo(2);
+	}
+
+	@Test
+	void diskTierSurvivesRestart() {
+		Path file = dir.resolve("embedding-cache.bin");
+		HashingEmbeddingModel ollama = new HashingEmbeddingModel(16);
+		float[] original = new CachingEmbeddingModel(ollama, "nomic-embed-text", 100, file).embed("chunk one");
+
+		CachingEmbeddingModel restarted = new CachingEmbeddingModel(ollama, "nomic-embed-text", 100, file);
+		assertThat(restarted.embed("chunk one")).isEqualTo(original);
+		assertThat(restarted.getDiskHits()).isEqualTo(1);
+		assertThat(ollama.getEmbeddedTexts()).isEqualTo(1);
+
+		// A different model name must not reuse the entry
+		new CachingEmbeddingModel(ollama, "other-model", 100, file).embed("chunk one");
+		assertThat(ollama.getEmbeddedTexts()).isEqualTo(2);
+	}
+
+	@Test
+	void returnedArraysAreCopies() {
+		CachingEmbeddingModel cache = new CachingEmbeddingModel(new HashingEmbeddingModel(16), "nomic-embed-text", 100,
+				null);
+		float[] first = cache.embed("what is the warranty period");
+		float[] original = first.clone();
+		first[0] = 42;
+
+		assertThat(cache.embed("what is the warranty period")).isEqualTo(original);
+		List<float[]> batch = cache.embed(List.of("new text", "new text"));
+		assertThat(batch.get(0)).isNotSameAs(batch.get(1)).isEqualTo(batch.get(1));
+	}
+
+	@Test
+	void diskTierKeepsTheMostRecentlyUsedWithinItsBound() throws Exception {
+		Path file = dir.resolve("embedding-cache.bin");
+		HashingEmbeddingModel ollama = new HashingEmbeddingModel(16);
+		long recordBytes = Long.BYTES * 2 + Integer.BYTES + 16 * Float.BYTES;
+		try (CachingEmbeddingModel cache = new CachingEmbeddingModel(ollama, "nomic-embed-text", 1, file, 10)) {
+			for (int i = 0; i < 100; i++) {
+				cache.embed("chunk " + i);
+				cache.embed("chunk 0"); // kept in use
+				assertThat(Files.size(file)).isLessThanOrEqualTo(2 * 10 * recordBytes);
+			}
+		}
+
+		try (CachingEmbeddingModel restarted = new CachingEmbeddingModel(ollama, "nomic-embed-text", 1, file, 10)) {
+			int embedded = ollama.getEmbeddedTexts();
+			restarted.embed("chunk 0");
+			for (int i = 91; i < 100; i++) {
+				restarted.embed("chunk " + i);
+			}
+			assertThat(restarted.getDiskHits()).isEqualTo(10);
+			assertThat(ollama.getEmbeddedTexts()).isEqualTo(embedded);
+
+			restarted.embed("chunk 50");
+			assertThat(ollama.getEmbeddedTexts()).isEqualTo(embedded + 1);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.zentriq.support.FakeOllamaServer;
+import com.zentriq.vectorstore.MappedVectorStore;
+
+class ChatRequestExecutorTests {
+
+	@TempDir
+	Path indexDir;
+
+	@Test
+	void rejectsWhenFullAndFreesTheSlotOfACancelledRequest() throws Exception {
+		try (FakeOllamaServer server = FakeOllamaServer.builder().dimensions(64)
+				.firstTokenLatency(FakeOllamaServer.Latency.fixed(3000)).start()) {
+			OllamaService ollamaService = OllamaServiceTests.ollamaService(server, indexDir);
+			ChatRequestExecutor executor = new ChatRequestExecutor(ollamaService, 1, 1);
+			try {
+				// One running, one queued: the queue is full
+				CompletableFuture<String> running = executor.submit("What does fault E-4711 mean?", token -> {
+				});
+				await(() -> server.getChatCalls() == 1);
+				CompletableFuture<String> queued = executor.submit("Which part fixes it?", token -> {
+				});
+				assertThat(executor.getPendingCount()).isEqualTo(2);
+				CompletableFuture<String> rejected = executor.submit("How often is the oil checked?", token -> {
+				});
+				assertThatThrownBy(rejected::join).isInstanceOf(CompletionException.class)
+					.hasCauseInstanceOf(RejectedExecutionException.class);
+
+				// Cancelling the queued request gives its slot back right away
+				queued.cancel(true);
+				assertThat(executor.getPendingCount()).isEqualTo(1);
+				CompletableFuture<String> next = executor.submit("How often is the oil checked?", token -> {
+				});
+				assertThat(next).isNotCompletedExceptionally();
+
+				running.cancel(true);
+				next.cancel(true);
+				assertThat(server.getChatCalls()).isEqualTo(1); // the cancelled queued request never ran
+			} finally {
+				executor.shutdown();
+				((MappedVectorStore) ollamaService.getVectorStore()).close();
+			}
+		}
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).as("condition met within 10 s").isLessThan(deadline);
+			Thread.sleep(20);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+class ContextAssemblerTests {
+
+	private static final String SEAL = "Fault E-4711 means the shaft seal is worn. Order part PN-3342-A and replace "
+			+ "the seal within one week.";
+	private static final String OIL = "Check the oil level of the pump every week and top it up with ISO VG 46 oil.";
+
+	@Test
+	void ordersByScoreAndDropsNearDuplicates() {
+		ContextAssembler assembler = new ContextAssembler(1024, 0.8);
+		ContextAssembler.Context context = assembler.assemble(List.of(
+				chunk("oil", OIL, 0.4),
+				chunk("seal", SEAL, 0.9),
+				chunk("seal-copy", SEAL.replace("one week", "one  week!"), 0.8)));
+
+		assertThat(context.chunks()).extracting(Document::getId).containsExactly("seal", "oil");
+		assertThat(context.text()).isEqualTo(SEAL + ContextAssembler.SEPARATOR + OIL + ContextAssembler.SEPARATOR);
+		assertThat(context.duplicates()).isEqualTo(1);
+		assertThat(context.savedTokens()).isEqualTo(TokenCounter.count(SEAL + "!") + TokenCounter.count(ContextAssembler.SEPARATOR));
+	}
+
+	@Test
+	void trimsChunkerOverlapAndStopsAtTheBudget() {
+		String first = "The relief valve opens at 42 bar. Never exceed the rated pressure of the pump housing.";
+		// The chunker repeats the previous chunk's last sentence at the start of the next
+		String second = "Never exceed the rated pressure of the pump housing. Vent the circuit before any service work.";
+		ContextAssembler.Context overlap = new ContextAssembler(1024, 0.8)
+			.assemble(List.of(chunk("a", first, 0.9), chunk("b", second, 0.8)));
+		assertThat(overlap.text()).isEqualTo(first + ContextAssembler.SEPARATOR
+				+ "Vent the circuit before any service work." + ContextAssembler.SEPARATOR);
+
+		String longChunk = "Step " + "tighten each flange bolt to the listed torque, ".repeat(40);
+		ContextAssembler.Context budgeted = new ContextAssembler(120, 0.8)
+			.assemble(List.of(chunk("a", first, 0.9), chunk("long", longChunk, 0.8), chunk("c", OIL, 0.7)));
+		assertThat(budgeted.tokens()).isLessThanOrEqualTo(120);
+		assertThat(budgeted.truncated()).isTrue();
+		assertThat(budgeted.chunks()).extracting(Document::getId).containsExactly("a", "long");
+		assertThat(budgeted.text()).doesNotContain(OIL);
+		assertThat(budgeted.savedTokens()).isPositive();
+	}
+
+	private static Document chunk(String id, String text, double score) {
+		return Document.builder().id(id).text(text).score(score).build();
+	}
+}
@@ -0,0 +1,89 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+class ConversationMemoryTests {
+
+	private final List<String> summaryPrompts = new ArrayList<>();
+
+	// Summarises by listing the questions it was shown, so the test can tell what was folded in
+	private final ChatModel summarizer = prompt -> {
+		String text = prompt.getContents();
+		summaryPrompts.add(text);
+		String questions = String.join(", ", text.lines().filter(line -> line.startsWith("User: "))
+				.map(line -> line.substring(6)).toList());
+		return new ChatResponse(List.of(new Generation(new AssistantMessage("asked about " + questions))));
+	};
+
+	@Test
+	void olderTurnsAreSummarisedOnceAndHistoryStaysInBudget() {
+		ConversationMemory memory = new ConversationMemory(summarizer, 200, 2, 64, Runnable::run);
+		for (int i = 1; i <= 20; i++) {
+			memory.record("question " + i, "answer " + i + " with some detail about valve " + i);
+			assertThat(TokenCounter.count(memory.render())).isLessThanOrEqualTo(200);
+		}
+
+		String history = memory.render();
+		assertThat(history).contains("User: question 19", "User: question 20").doesNotContain("User: question 18");
+		assertThat(memory.getSummary()).contains("question 18");
+		// Each evicted turn went to the model exactly once
+		assertThat(summaryPrompts).hasSize(18);
+	}
+
+	@Test
+	void failingSummariesDoNotPileUpTurns() {
+		ChatModel down = prompt -> {
+			throw new IllegalStateException("Connection refused");
+		};
+		ConversationMemory memory = new ConversationMemory(down, 200, 2, 64, Runnable::run);
+		Logger logger = (Logger) LoggerFactory.getLogger(ConversationMemory.class);
+		ListAppender<ILoggingEvent> log = new ListAppender<>();
+		log.start();
+		logger.addAppender(log);
+		try {
+			for (int i = 1; i <= 500; i++) {
+				memory.record("question " + i, "answer " + i + " with some detail about valve " + i);
+			}
+		} finally {
+			logger.detachAppender(log);
+		}
+
+		// One stack trace for the outage, one line per later failure
+		assertThat(log.list).hasSizeGreaterThan(100);
+		assertThat(log.list).filteredOn(event -> event.getThrowableProxy() != null).hasSize(1);
+
+		// Only what still fits the budget is kept, newest turns first
+		assertThat(memory.getPendingCount()).isLessThan(20);
+		assertThat(memory.getSummary()).isEmpty();
+		String history = memory.render();
+		assertThat(TokenCounter.count(history)).isLessThanOrEqualTo(200);
+		assertThat(history).contains("User: question 498", "User: question 500").doesNotContain("User: question 1\n");
+	}
+
+	@Test
+	void resetForgetsTheConversation() {
+		ConversationMemory memory = new ConversationMemory(summarizer, 200, 1, 64, Runnable::run);
+		memory.record("first", "one");
+		memory.record("second", "two");
+		assertThat(memory.render()).contains("Summary of the earlier conversation", "User: second");
+
+		memory.reset();
+
+		assertThat(memory.render()).isEmpty();
+		assertThat(memory.getSummary()).isEmpty();
+	}
+}
@@ -0,0 +1,152 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+
+class CustomDocumentLoaderTests {
+
+	private static final Pattern PAGE_MARKER = Pattern.compile("Page (\\d+) line");
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void streamedPdfChunksKeepTextAndStartPage() throws IOException {
+		Path pdf = writePdf(dir.resolve("manual.pdf"), 20);
+
+		List<Document> chunks = new ArrayList<>();
+		int count = CustomDocumentLoader.streamPdf(pdf, CustomDocumentLoader.DEFAULT_CHUNKER, 3, chunks::add);
+
+		assertThat(count).isEqualTo(chunks.size()).isGreaterThan(1);
+		String text = chunks.stream().map(Document::getText).reduce("", String::concat);
+		for (int page = 1; page <= 20; page++) {
+			assertThat(text).contains("Page " + page + " line 0");
+		}
+		for (Document chunk : chunks) {
+			assertThat(chunk.getMetadata()).containsEntry("filename", "manual.pdf");
+			int page = (Integer) chunk.getMetadata().get("page");
+			// The first full line marker is on the chunk's start page, or the next one if it starts on a last line
+			Matcher marker = PAGE_MARKER.matcher(chunk.getText());
+			if (marker.find()) {
+				assertThat(Integer.parseInt(marker.group(1))).isBetween(page, page + 1);
+			}
+		}
+	}
+
+	@Test
+	void parallelExtractionMatchesSequential() throws IOException {
+		Path pdf = writePdf(dir.resolve("large.pdf"), CustomDocumentLoader.PDF_PARALLEL_MIN_PAGES + 9);
+
+		List<Document> sequential = new ArrayList<>();
+		CustomDocumentLoader.streamPdf(pdf, CustomDocumentLoader.DEFAULT_CHUNKER, 4, sequential::add);
+		List<Document> parallel = new ArrayList<>();
+		CustomDocumentLoader.streamPdfParallel(pdf, CustomDocumentLoader.DEFAULT_CHUNKER, 4, 4, parallel::add);
+
+		assertThat(parallel).extracting(Document::getText)
+			.containsExactlyElementsOf(sequential.stream().map(Document::getText).toList());
+		assertThat(parallel).extracting(doc -> doc.getMetadata().get("page"))
+			.containsExactlyElementsOf(sequential.stream().map(doc -> doc.getMetadata().get("page")).toList());
+	}
+
+	@Test
+	void csvChunksHoldWholeRowsUnderTheHeader() throws IOException {
+		Path csv = dir.resolve("parts.csv");
+		StringBuilder content = new StringBuilder("part,description,price\n");
+		for (int row = 1; row <= 200; row++) {
+			content.append("P-").append(row).append(",\"valve, size ").append(row).append("\",").append(row * 3).append('\n');
+		}
+		Files.writeString(csv, content);
+
+		List<Document> chunks = new ArrayList<>();
+		CustomDocumentLoader.streamCsv(csv, CustomDocumentLoader.DEFAULT_CHUNKER, chunks::add);
+
+		assertThat(chunks).hasSizeGreaterThan(1);
+		int expectedStart = 1;
+		for (Document chunk : chunks) {
+			List<String> lines = chunk.getText().lines().toList();
+			assertThat(lines.get(0)).isEqualTo("part, description, price");
+			int rowStart = (Integer) chunk.getMetadata().get("rowStart");
+			int rowEnd = (Integer) chunk.getMetadata().get("rowEnd");
+			assertThat(rowStart).isEqualTo(expectedStart);
+			assertThat(lines).hasSize(rowEnd - rowStart + 2);
+			assertThat(lines.get(1)).startsWith("P-" + rowStart + ", valve, size " + rowStart + ", ");
+			expectedStart = rowEnd + 1;
+		}
+		assertThat(expectedStart).isEqualTo(201);
+	}
+
+	@Test
+	void csvChunksFollowTheChunkerAndTolerateOtherEncodings() throws IOException {
+		Path csv = dir.resolve("parts.csv");
+		StringBuilder content = new StringBuilder("part,description,price\n");
+		for (int row = 1; row <= 200; row++) {
+			content.append("P-").append(row).append(",Ventil für Größe ").append(row).append(',').append(row * 3).append('\n');
+		}
+		// A Windows-1252 export: the umlauts are not valid UTF-8
+		Files.write(csv, content.toString().getBytes(Charset.forName("windows-1252")));
+
+		List<Document> small = new ArrayList<>();
+		CustomDocumentLoader.streamCsv(csv, new BoundaryAwareChunker(32, 0), small::add);
+		List<Document> large = new ArrayList<>();
+		CustomDocumentLoader.streamCsv(csv, new BoundaryAwareChunker(128, 0), large::add);
+
+		assertThat(small.size()).isGreaterThan(2 * large.size());
+		int expectedStart = 1;
+		for (Document chunk : small) {
+			List<String> lines = chunk.getText().lines().toList();
+			int rowStart = (Integer) chunk.getMetadata().get("rowStart");
+			int rowEnd = (Integer) chunk.getMetadata().get("rowEnd");
+			assertThat(rowStart).isEqualTo(expectedStart);
+			assertThat(lines).hasSize(rowEnd - rowStart + 2);
+			assertThat(lines.get(1)).startsWith("P-" + rowStart + ", Ventil f\uFFFDr Gr\uFFFD\uFFFDe " + rowStart + ", ");
+			assertThat(TokenCounter.count(chunk.getText())).isLessThanOrEqualTo(32);
+			expectedStart = rowEnd + 1;
+		}
+		assertThat(expectedStart).isEqualTo(201);
+
+		// A row longer than a chunk still stays whole
+		List<Document> tiny = new ArrayList<>();
+		CustomDocumentLoader.streamCsv(csv, new FixedSizeChunker(10), tiny::add);
+		assertThat(tiny).hasSize(200).allMatch(chunk -> chunk.getMetadata().get("rowStart").equals(chunk.getMetadata().get("rowEnd")));
+	}
+
+	static Path writePdf(Path file, int pages) throws IOException {
+		try (PDDocument document = new PDDocument()) {
+			PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+			for (int p = 1; p <= pages; p++) {
+				PDPage page = new PDPage();
+				document.addPage(page);
+				try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+					content.beginText();
+					content.setFont(font, 10);
+					content.setLeading(12);
+					content.newLineAtOffset(40, 750);
+					for (int line = 0; line < 20; line++) {
+						content.showText("Page " + p + " line " + line + " pressure valve maintenance schedule");
+						content.newLine();
+					}
+					content.endText();
+				}
+			}
+			document.save(file.toFile());
+		}
+		return file;
+	}
+}
@@ -0,0 +1,96 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.zentriq.support.HashingEmbeddingModel;
+import com.zentriq.vectorstore.MappedVectorStore;
+
+class IngestionJobServiceTests {
+
+	@TempDir
+	Path dir;
+
+	// Embeds normally once released; until then every request waits
+	static class GatedEmbeddingModel extends HashingEmbeddingModel {
+
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		GatedEmbeddingModel() {
+			super(32);
+		}
+
+		@Override
+		public EmbeddingResponse call(EmbeddingRequest request) {
+			entered.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			return super.call(request);
+		}
+	}
+
+	@Test
+	void indexesInTheBackgroundAndCancelsCleanly() throws Exception {
+		Path manual = Files.writeString(dir.resolve("manual.txt"),
+				"The relief valve opens at 42 bar. Check the seal every week.\n\n".repeat(400));
+		GatedEmbeddingModel embeddingModel = new GatedEmbeddingModel();
+		Bm25Index bm25Index = new Bm25Index();
+		SemanticAnswerCache answerCache = new SemanticAnswerCache(0.95, 10, 60);
+		try (MappedVectorStore store = MappedVectorStore.builder(embeddingModel).directory(dir.resolve("index")).build()) {
+			IngestionService ingestionService = new IngestionService(store, bm25Index, new BoundaryAwareChunker(),
+					new RagMetrics(new SimpleMeterRegistry(), answerCache, embeddingModel), 8, 1, 1);
+			IngestionJobService jobs = new IngestionJobService(ingestionService, answerCache, 1);
+
+			// The first job blocks in its first embedding request, so the second stays queued
+			IngestionJobService.Job running = jobs.submit(manual, job -> { });
+			IngestionJobService.Job queued = jobs.submit(manual, job -> { });
+			assertThat(embeddingModel.entered.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(running.getState()).isEqualTo(IngestionJobService.State.RUNNING);
+			assertThat(queued.getState()).isEqualTo(IngestionJobService.State.QUEUED);
+			assertThat(jobs.getActiveJobs()).containsExactly(running, queued);
+
+			queued.cancel();
+			assertThat(queued.result()).isCancelled();
+			running.cancel();
+			embeddingModel.release.countDown();
+			assertThat(running.result()).failsWithin(10, TimeUnit.SECONDS);
+			assertThat(running.getState()).isEqualTo(IngestionJobService.State.CANCELLED);
+			assertThat(store.size()).isZero(); // the batch in flight when cancelled was removed again
+			assertThat(bm25Index.size()).isZero();
+
+			// A job that runs to completion, reporting progress on the way
+			answerCache.put("q", new float[] { 1 }, List.of(), "a");
+			List<String> progress = new CopyOnWriteArrayList<>();
+			IngestionJobService.Job done = jobs.submit(manual,
+					job -> progress.add(job.getState() + " " + job.getStored() + "/" + job.getProduced()));
+			IngestionService.Stats stats = done.result().get(10, TimeUnit.SECONDS);
+
+			assertThat(stats.chunks()).isPositive().isEqualTo(store.size()).isEqualTo(bm25Index.size());
+			assertThat(done.getState()).isEqualTo(IngestionJobService.State.DONE);
+			assertThat(done.isParsed()).isTrue();
+			assertThat(done.getProgress()).isEqualTo(1.0);
+			assertThat(progress).first().isEqualTo("RUNNING 0/0");
+			assertThat(progress).last().isEqualTo("DONE " + stats.chunks() + "/" + stats.chunks());
+			assertThat(answerCache.size()).isZero();
+			assertThat(jobs.getActiveJobs()).isEmpty();
+			jobs.shutdown();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.zentriq.support.HashingEmbeddingModel;
+
+class IngestionServiceTests {
+
+	// Records what it is given; each add waits for the gate and the Nth add fails
+	static class StubVectorStore implements VectorStore {
+
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+		final List<String> stored = Collections.synchronizedList(new ArrayList<>());
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		final AtomicInteger calls = new AtomicInteger();
+		final CountDownLatch gate;
+		final int failAt;
+
+		StubVectorStore(CountDownLatch gate, int failAt) {
+			this.gate = gate;
+			this.failAt = failAt;
+		}
+
+		@Override
+		public void add(List<Document> documents) {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			try {
+				gate.await(10, TimeUnit.SECONDS);
+				if (calls.incrementAndGet() == failAt) {
+					throw new IllegalStateException("Embedding batch " + failAt + " failed");
+				}
+				batchSizes.add(documents.size());
+				documents.forEach(doc -> stored.add(doc.getId()));
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			} finally {
+				inFlight.decrementAndGet();
+			}
+		}
+
+		@Override
+		public void delete(List<String> ids) {
+			stored.removeAll(ids);
+		}
+
+		@Override
+		public void delete(Filter.Expression filterExpression) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<Document> similaritySearch(SearchRequest request) {
+			return List.of();
+		}
+	}
+
+	@Test
+	void batchesAreBoundedInSizeAndInFlight() throws Exception {
+		CountDownLatch gate = new CountDownLatch(1);
+		StubVectorStore store = new StubVectorStore(gate, 0);
+		Bm25Index bm25Index = new Bm25Index();
+		IngestionService ingestionService = ingestionService(store, bm25Index, 4, 2);
+		try {
+			IngestionService.Session session = ingestionService.openSession();
+			Thread producer = new Thread(() -> {
+				for (int i = 0; i < 18; i++) {
+					session.add(chunk(i));
+				}
+			});
+			producer.start();
+
+			// Two batches are stored at once; the producer waits on the third instead of queueing it
+			producer.join(300);
+			assertThat(producer.isAlive()).isTrue();
+			assertThat(store.inFlight.get()).isEqualTo(2);
+			assertThat(session.getProduced()).isEqualTo(12);
+
+			gate.countDown();
+			producer.join(10_000);
+			IngestionService.Stats stats = session.finish();
+
+			assertThat(stats.chunks()).isEqualTo(18);
+			assertThat(store.batchSizes).containsExactlyInAnyOrder(4, 4, 4, 4, 2);
+			assertThat(store.maxInFlight.get()).isEqualTo(2);
+			assertThat(bm25Index.size()).isEqualTo(18);
+			assertThat(session.getStoredIds()).hasSize(18);
+		} finally {
+			ingestionService.shutdown();
+		}
+	}
+
+	@Test
+	void finishRethrowsABatchFailureAndRemovesWhatWasStored() {
+		StubVectorStore store = new StubVectorStore(new CountDownLatch(0), 2);
+		Bm25Index bm25Index = new Bm25Index();
+		IngestionService ingestionService = ingestionService(store, bm25Index, 4, 1);
+		try {
+			IngestionService.Session session = ingestionService.openSession();
+			for (int i = 0; i < 12; i++) {
+				session.add(chunk(i));
+			}
+
+			assertThatThrownBy(session::finish).isInstanceOf(IllegalStateException.class)
+				.hasMessage("Embedding batch 2 failed");
+			// Nothing is sent after the failure, and the first batch is removed again
+			assertThat(store.calls.get()).isEqualTo(2);
+			assertThat(store.stored).isEmpty();
+			assertThat(bm25Index.size()).isZero();
+			assertThat(session.getStoredIds()).isEmpty();
+		} finally {
+			ingestionService.shutdown();
+		}
+	}
+
+	private static IngestionService ingestionService(VectorStore store, Bm25Index bm25Index, int batchSize,
+			int concurrency) {
+		SemanticAnswerCache answerCache = new SemanticAnswerCache(0.95, 10, 60);
+		RagMetrics metrics = new RagMetrics(new SimpleMeterRegistry(), answerCache, new HashingEmbeddingModel(32));
+		return new IngestionService(store, bm25Index, new BoundaryAwareChunker(), metrics, batchSize, concurrency, 1);
+	}
+
+	private static Document chunk(int i) {
+		return new Document("chunk-" + i, "Check valve " + i + " every week.", Map.of());
+	}
+}
@@ -0,0 +1,176 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.zentriq.support.HashingEmbeddingModel;
+import com.zentriq.vectorstore.MappedVectorStore;
+
+class KnowledgeFolderWatcherTests {
+
+	@TempDir
+	Path dir;
+
+	// Fails the Nth embedding request while failing is on
+	static class FailingEmbeddingModel extends HashingEmbeddingModel {
+
+		final AtomicInteger requests = new AtomicInteger();
+		final int failAt;
+		volatile boolean failing = true;
+		volatile boolean failed;
+
+		FailingEmbeddingModel(int failAt) {
+			super(32);
+			this.failAt = failAt;
+		}
+
+		@Override
+		public EmbeddingResponse call(EmbeddingRequest request) {
+			if (failing && requests.incrementAndGet() == failAt) {
+				failed = true;
+				throw new IllegalStateException("Embedding request " + failAt + " failed");
+			}
+			return super.call(request);
+		}
+	}
+
+	@Test
+	void followsAddedChangedAndDeletedFiles() throws Exception {
+		Path folder = Files.createDirectories(dir.resolve("knowledge"));
+		Path manifestFile = dir.resolve("manifest.json");
+		Path pumps = Files.writeString(folder.resolve("pumps.txt"), "The relief valve opens at 42 bar.");
+		Files.writeString(folder.resolve("seals.txt"), "Replace the shaft seal every 2000 hours.");
+
+		HashingEmbeddingModel embeddingModel = new HashingEmbeddingModel(32);
+		Bm25Index bm25Index = new Bm25Index();
+		SemanticAnswerCache answerCache = new SemanticAnswerCache(0.95, 10, 60);
+		try (MappedVectorStore store = MappedVectorStore.builder(embeddingModel).directory(dir.resolve("index")).build()) {
+			IngestionService ingestionService = new IngestionService(store, bm25Index, new BoundaryAwareChunker(),
+					new RagMetrics(new SimpleMeterRegistry(), answerCache, embeddingModel), 8, 1, 1);
+			KnowledgeFolderWatcher watcher = new KnowledgeFolderWatcher(ingestionService, store, bm25Index, answerCache,
+					folder.toString(), manifestFile.toString(), 50);
+
+			// Initial scan
+			watcher.start();
+			await(() -> watcher.getManifest().size() == 2);
+			List<String> oldPumpChunks = watcher.getManifest().get("pumps.txt").chunkIds();
+			assertThat(store.size()).isEqualTo(2);
+			int embedded = embeddingModel.getEmbeddedTexts();
+
+			// A burst of writes to one file, a new file in a new directory and a deletion
+			Files.writeString(pumps, "The relief valve opens at 40 bar.");
+			Files.writeString(pumps, "The relief valve opens at 45 bar.");
+			Files.writeString(Files.createDirectories(folder.resolve("sub")).resolve("oil.txt"), "Use SAE 30 oil.");
+			Files.delete(folder.resolve("seals.txt"));
+			await(() -> watcher.getManifest().keySet().equals(Set.of("pumps.txt", "sub/oil.txt"))
+					&& !watcher.getManifest().get("pumps.txt").chunkIds().equals(oldPumpChunks));
+
+			assertThat(store.size()).isEqualTo(2).isEqualTo(bm25Index.size());
+			assertThat(store.getDocuments(oldPumpChunks)).isEmpty();
+			assertThat(store.getDocuments(watcher.getManifest().get("pumps.txt").chunkIds()))
+				.extracting(doc -> doc.getText()).containsExactly("The relief valve opens at 45 bar.");
+			assertThat(embeddingModel.getEmbeddedTexts() - embedded).isLessThanOrEqualTo(3); // only new content
+			watcher.stop();
+
+			// Restarted with the saved manifest: nothing changed, nothing is embedded again
+			embedded = embeddingModel.getEmbeddedTexts();
+			Files.delete(folder.resolve("sub/oil.txt"));
+			KnowledgeFolderWatcher restarted = new KnowledgeFolderWatcher(ingestionService, store, bm25Index,
+					answerCache, folder.toString(), manifestFile.toString(), 50);
+			restarted.start();
+			await(() -> restarted.getManifest().size() == 1);
+			assertThat(store.size()).isEqualTo(1);
+			assertThat(embeddingModel.getEmbeddedTexts()).isEqualTo(embedded);
+			restarted.stop();
+		}
+	}
+
+	@Test
+	void failedIngestionLeavesNoChunksBehind() throws Exception {
+		Path folder = Files.createDirectories(dir.resolve("knowledge"));
+		Path manual = Files.writeString(folder.resolve("manual.txt"),
+				"The relief valve opens at 42 bar. Check the seal every week.\n\n".repeat(200));
+
+		FailingEmbeddingModel embeddingModel = new FailingEmbeddingModel(3);
+		Bm25Index bm25Index = new Bm25Index();
+		SemanticAnswerCache answerCache = new SemanticAnswerCache(0.95, 10, 60);
+		try (MappedVectorStore store = MappedVectorStore.builder(embeddingModel).directory(dir.resolve("index")).build()) {
+			IngestionService ingestionService = new IngestionService(store, bm25Index, new BoundaryAwareChunker(),
+					new RagMetrics(new SimpleMeterRegistry(), answerCache, embeddingModel), 8, 1, 1);
+			KnowledgeFolderWatcher watcher = new KnowledgeFolderWatcher(ingestionService, store, bm25Index, answerCache,
+					folder.toString(), dir.resolve("manifest.json").toString(), 50);
+
+			// The third batch fails after two were stored: both are removed again
+			watcher.start();
+			await(() -> embeddingModel.failed && store.size() == 0 && bm25Index.size() == 0);
+			assertThat(watcher.getManifest()).isEmpty();
+
+			// The next change indexes the file once, with no leftovers from the failed attempt
+			embeddingModel.failing = false;
+			Files.writeString(manual, "Replace the filter every month.\n\n", StandardOpenOption.APPEND);
+			await(() -> watcher.getManifest().containsKey("manual.txt"));
+			List<String> chunkIds = watcher.getManifest().get("manual.txt").chunkIds();
+			assertThat(chunkIds).hasSizeGreaterThan(16);
+			assertThat(store.size()).isEqualTo(chunkIds.size()).isEqualTo(bm25Index.size());
+			watcher.stop();
+		}
+	}
+
+	@Test
+	void keepsWatchingAfterDirectoriesVanishAgain() throws Exception {
+		Path folder = Files.createDirectories(dir.resolve("knowledge"));
+		HashingEmbeddingModel embeddingModel = new HashingEmbeddingModel(32);
+		Bm25Index bm25Index = new Bm25Index();
+		SemanticAnswerCache answerCache = new SemanticAnswerCache(0.95, 10, 60);
+		try (MappedVectorStore store = MappedVectorStore.builder(embeddingModel).directory(dir.resolve("index")).build()) {
+			IngestionService ingestionService = new IngestionService(store, bm25Index, new BoundaryAwareChunker(),
+					new RagMetrics(new SimpleMeterRegistry(), answerCache, embeddingModel), 8, 1, 1);
+			KnowledgeFolderWatcher watcher = new KnowledgeFolderWatcher(ingestionService, store, bm25Index, answerCache,
+					folder.toString(), dir.resolve("manifest.json").toString(), 50);
+			Path pumps = Files.writeString(folder.resolve("pumps.txt"), "The relief valve opens at 42 bar.");
+			watcher.start();
+			await(() -> watcher.getManifest().size() == 1);
+			List<String> oldPumpChunks = watcher.getManifest().get("pumps.txt").chunkIds();
+
+			// Directories removed while the watcher is still registering them
+			for (int i = 0; i < 50; i++) {
+				Path tree = Files.createDirectories(folder.resolve("tmp" + i).resolve("a").resolve("b"));
+				Files.delete(tree);
+				Files.delete(tree.getParent());
+				Files.delete(tree.getParent().getParent());
+			}
+			answerCache.put("At what pressure does the relief valve open?", new float[] { 1, 0 }, List.of("c1"), "42 bar");
+
+			// Later changes are still followed, and the cached answer goes with the replaced chunks
+			Files.writeString(pumps, "The relief valve opens at 45 bar.");
+			Files.writeString(folder.resolve("oil.txt"), "Use SAE 30 oil.");
+			await(() -> watcher.getManifest().size() == 2
+					&& !watcher.getManifest().get("pumps.txt").chunkIds().equals(oldPumpChunks));
+			assertThat(store.size()).isEqualTo(2);
+			assertThat(answerCache.size()).isZero();
+			watcher.stop();
+		}
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertThat(System.currentTimeMillis()).as("condition met within 10 s").isLessThan(deadline);
+			Thread.sleep(20);
+		}
+	}
+}
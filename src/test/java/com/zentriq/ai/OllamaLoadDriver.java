@@ -0,0 +1,161 @@
+package com.zentriq.ai;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.springframework.ai.document.Document;
+
+import com.zentriq.support.FakeOllamaServer;
+import com.zentriq.support.FakeOllamaServer.Latency;
+import com.zentriq.vectorstore.MappedVectorStore;
+
+/**
+ * Load test of {@link OllamaService} against {@link FakeOllamaServer}, through the real Spring AI
+ * Ollama client: {@code users} threads each ask {@code questions} questions while another thread
+ * indexes {@code batches} batches of new chunks, on top of a pre-indexed corpus. Prints p50/p95/p99
+ * latency and throughput per operation.
+ *
+ * The stand-in answers 60 words at 40 tokens/s after a log-normal time to first token (median
+ * 250 ms), runs 4 requests at once and takes 5-20 ms per embedding request, roughly llama3.2 and
+ * nomic-embed-text on a desktop GPU.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.zentriq.ai.OllamaLoadDriver [-Dexec.args="users questions batches"]}.
+ */
+public class OllamaLoadDriver {
+
+	private static final String[] WORDS = { "pump", "valve", "pressure", "seal", "must", "be", "checked", "every",
+		"week", "operator", "maintenance", "schedule", "filter", "replaced", "within", "limits", "the", "of" };
+
+	public static void main(String[] args) throws Exception {
+		int users = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int questions = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int batches = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		Path dir = Files.createTempDirectory("zentriq-load-");
+		try (FakeOllamaServer server = FakeOllamaServer.builder()
+				.firstTokenLatency(Latency.logNormal(250, 0.5))
+				.tokensPerSecond(40)
+				.answerWords(60)
+				.embedLatency(Latency.uniform(5, 20))
+				.parallel(4)
+				.start()) {
+			OllamaService ollamaService = OllamaServiceTests.ollamaService(server, dir);
+			Random random = new Random(42);
+			long start = System.nanoTime();
+			ollamaService.indexDocuments(chunks("corpus", 2000, random));
+			System.out.printf("Pre-indexed 2000 chunks in %d ms%n%n", (System.nanoTime() - start) / 1_000_000);
+
+			ConcurrentLinkedQueue<Long> askNanos = new ConcurrentLinkedQueue<>();
+			ConcurrentLinkedQueue<Long> indexNanos = new ConcurrentLinkedQueue<>();
+			AtomicInteger failures = new AtomicInteger();
+			ExecutorService pool = Executors.newFixedThreadPool(users + 1);
+			CountDownLatch go = new CountDownLatch(1);
+			for (int user = 0; user < users; user++) {
+				int u = user;
+				pool.execute(() -> {
+					await(go);
+					for (int q = 0; q < questions; q++) {
+						String question = "User " + u + " question " + q + ": how often must the "
+								+ WORDS[(u * 7 + q) % WORDS.length] + " be checked?";
+						time(() -> ollamaService.ask(question), askNanos, failures);
+					}
+				});
+			}
+			List<List<Document>> newChunks = new ArrayList<>();
+			for (int batch = 0; batch < batches; batch++) {
+				newChunks.add(chunks("update-" + batch, 100, random));
+			}
+			pool.execute(() -> {
+				await(go);
+				for (List<Document> batch : newChunks) {
+					time(() -> ollamaService.indexDocuments(batch), indexNanos, failures);
+				}
+			});
+
+			start = System.nanoTime();
+			go.countDown();
+			pool.shutdown();
+			pool.awaitTermination(1, TimeUnit.HOURS);
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			System.out.printf("%d users x %d questions, %d index batches of 100 chunks, %.1f s%n%n", users, questions,
+					batches, seconds);
+			System.out.printf("%-16s %6s %9s %9s %9s %9s %10s%n", "operation", "count", "p50 ms", "p95 ms", "p99 ms",
+					"max ms", "ops/s");
+			report("ask", askNanos, seconds);
+			report("indexDocuments", indexNanos, seconds);
+			System.out.printf("%nfailures: %d, answer cache hits: %d, chat requests: %d, embed requests: %d (%d texts)%n",
+					failures.get(), ollamaService.getAnswerCache().getHits(), server.getChatCalls(),
+					server.getEmbedCalls(), server.getEmbeddedTexts());
+			((MappedVectorStore) ollamaService.getVectorStore()).close();
+		} finally {
+			try (Stream<Path> files = Files.walk(dir)) {
+				files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+		System.exit(0); // the conversation summariser thread
+	}
+
+	private static void time(Runnable operation, ConcurrentLinkedQueue<Long> nanos, AtomicInteger failures) {
+		long start = System.nanoTime();
+		try {
+			operation.run();
+			nanos.add(System.nanoTime() - start);
+		} catch (RuntimeException ex) {
+			failures.incrementAndGet();
+			ex.printStackTrace();
+		}
+	}
+
+	private static void report(String operation, ConcurrentLinkedQueue<Long> nanos, double seconds) {
+		long[] sorted = nanos.stream().mapToLong(Long::longValue).toArray();
+		Arrays.sort(sorted);
+		System.out.printf("%-16s %6d %9.1f %9.1f %9.1f %9.1f %10.2f%n", operation, sorted.length,
+				percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+				percentile(sorted, 100), sorted.length / seconds);
+	}
+
+	// Nearest-rank percentile in milliseconds
+	private static double percentile(long[] sorted, int percent) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)] / 1e6;
+	}
+
+	private static List<Document> chunks(String prefix, int count, Random random) {
+		List<Document> chunks = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			StringBuilder text = new StringBuilder();
+			for (int word = 0; word < 60; word++) {
+				text.append(WORDS[random.nextInt(WORDS.length)]).append(word % 12 == 11 ? ". " : " ");
+			}
+			text.append("Fault E-").append(prefix.hashCode() & 0xfff).append('-').append(i).append('.');
+			chunks.add(new Document(prefix + "-" + i, text.toString(), Map.of("source", prefix)));
+		}
+		return chunks;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.zentriq.support.FakeOllamaServer;
+import com.zentriq.vectorstore.MappedVectorStore;
+
+class OllamaServiceTests {
+
+	@TempDir
+	Path indexDir;
+
+	private FakeOllamaServer server;
+	private MappedVectorStore vectorStore;
+	private OllamaService ollamaService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		server = FakeOllamaServer.builder().dimensions(64).answerWords(12).start();
+		ollamaService = ollamaService(server, indexDir);
+		vectorStore = (MappedVectorStore) ollamaService.getVectorStore();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		vectorStore.close();
+		server.close();
+	}
+
+	@Test
+	void answersThroughTheOllamaApi() {
+		ollamaService.indexDocuments(List.of(
+				new Document("seal", "Fault E-4711: the shaft seal is worn, order part PN-3342-A.", Map.of()),
+				new Document("oil", "Check the oil level of the pump every week.", Map.of())));
+
+		String answer = ollamaService.ask("What does fault E-4711 mean?");
+		assertThat(answer.split(" ")).hasSize(12);
+		assertThat(server.getChatCalls()).isEqualTo(1);
+		assertThat(server.getEmbeddedTexts()).isEqualTo(3); // two chunks and the question
+
+		// Streamed token by token; a rephrased question is no cache hit, so it reaches the model
+		List<String> tokens = ollamaService.askStream("Which part fixes fault E-4711?").collectList().block();
+		assertThat(tokens).hasSize(12);
+		assertThat(server.getChatCalls()).isEqualTo(2);
+
+		RagMetrics.Snapshot stats = ollamaService.getMetrics().snapshot();
+		assertThat(stats.questions()).isEqualTo(2);
+		assertThat(stats.generationMillis()).isPositive();
+		assertThat(stats.firstTokenMillis()).isPositive();
+		assertThat(stats.tokensPerSecond()).isPositive();
+		assertThat(stats.contextTokens()).isPositive();
+		assertThat(stats.chunksIndexed()).isZero(); // indexDocuments is not a file ingestion
+	}
+
+	@Test
+	void followUpsAreNotAnsweredFromTheCache() {
+		ollamaService.indexDocuments(List.of(
+				new Document("seal", "Fault E-4711: the shaft seal is worn, order part PN-3342-A.", Map.of())));
+
+		ollamaService.ask("What does fault E-4711 mean?");
+		// Mid-conversation the same words may refer to earlier turns: asked again, not reused
+		ollamaService.ask("What does fault E-4711 mean?");
+		assertThat(server.getChatCalls()).isEqualTo(2);
+		assertThat(ollamaService.getAnswerCache().getHits()).isZero();
+
+		// A fresh conversation reuses the answer given without history
+		ollamaService.resetConversation();
+		ollamaService.ask("What does fault E-4711 mean?");
+		assertThat(server.getChatCalls()).isEqualTo(2);
+		assertThat(ollamaService.getAnswerCache().getHits()).isEqualTo(1);
+	}
+
+	@Test
+	void scopedQuestionRetrievesFromOneFileOnly() {
+		ollamaService.indexDocuments(List.of(
+				new Document("seal", "Fault E-4711: the shaft seal is worn, order part PN-3342-A.",
+						Map.of(CustomDocumentLoader.FILENAME_KEY, "manual.pdf")),
+				new Document("terms", "Repairs for fault codes are covered for two years.",
+						Map.of(CustomDocumentLoader.FILENAME_KEY, "terms.txt"))));
+
+		ScopedQuestion scoped = ScopedQuestion.parse("@terms.txt What does fault E-4711 mean?");
+		assertThat(scoped.source()).isEqualTo("terms.txt");
+		assertThat(scoped.question()).isEqualTo("What does fault E-4711 mean?");
+		List<Document> context = ollamaService.retriever.retrieve(scoped.question(), scoped.filter());
+		assertThat(context).extracting(Document::getId).containsExactly("terms");
+
+		ollamaService.indexDocuments(List.of(new Document("notes", "Fault E-4711 showed up after the pump was moved.",
+				Map.of(CustomDocumentLoader.FILENAME_KEY, "O'Brien notes.txt"))));
+		ScopedQuestion quoted = ScopedQuestion.parse("@\"O'Brien notes.txt\" What does fault E-4711 mean?");
+		assertThat(ollamaService.retriever.retrieve(quoted.question(), quoted.filter()))
+			.extracting(Document::getId)
+			.containsExactly("notes");
+
+		assertThat(ScopedQuestion.parse("@\"my notes.txt\" pump?").source()).isEqualTo("my notes.txt");
+		assertThat(ScopedQuestion.parse("What about @terms.txt?").filter()).isNull();
+	}
+
+	// The app's wiring, pointed at the stand-in
+	static OllamaService ollamaService(FakeOllamaServer server, Path indexDir) {
+		OllamaApi api = new OllamaApi(server.getBaseUrl());
+		OllamaChatModel chatModel = OllamaChatModel.builder()
+			.ollamaApi(api)
+			.defaultOptions(OllamaOptions.builder().model("llama3.2:latest").build())
+			.build();
+		CachingEmbeddingModel embeddingModel = new CachingEmbeddingModel(OllamaEmbeddingModel.builder()
+			.ollamaApi(api)
+			.defaultOptions(OllamaOptions.builder().model("nomic-embed-text:latest").build())
+			.build(), "nomic-embed-text:latest", 10_000, null);
+		MappedVectorStore vectorStore = MappedVectorStore.builder(embeddingModel)
+			.directory(indexDir)
+			.partitionBy(CustomDocumentLoader.FILENAME_KEY, CustomDocumentLoader.COLLECTION_KEY)
+			.build();
+		Bm25Index bm25Index = new Bm25Index();
+		SemanticAnswerCache answerCache = new SemanticAnswerCache(0.95, 500, 1440);
+		RagMetrics metrics = new RagMetrics(new SimpleMeterRegistry(), answerCache, embeddingModel);
+		return new OllamaService(chatModel, embeddingModel, vectorStore,
+				new IngestionService(vectorStore, bm25Index, new BoundaryAwareChunker(), metrics, 64, 2, 1),
+				new ConversationMemory(chatModel, 1024, 4, 256),
+				answerCache,
+				new HybridRetriever(vectorStore, bm25Index, 3, 10, 0.2, 60),
+				metrics,
+				new ContextAssembler(1024, 0.8));
+	}
+}
@@ -0,0 +1,58 @@
+package com.zentriq.ai;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.zentriq.support.HashingEmbeddingModel;
+
+class SemanticAnswerCacheTests {
+
+	private final HashingEmbeddingModel embeddings = new HashingEmbeddingModel(256);
+	private final AtomicLong now = new AtomicLong();
+	private final SemanticAnswerCache cache = new SemanticAnswerCache(0.9, 10, 60, now::get);
+
+	@Test
+	void similarQuestionWithSameContextHits() {
+		cache.put("What is the torque for the flange bolts?", embeddings.embed("What is the torque for the flange bolts?"),
+				List.of("a", "b"), "45 Nm");
+
+		assertThat(cache.lookup(embeddings.embed("what is the torque for the flange bolts"), List.of("a", "b")))
+			.isEqualTo("45 Nm");
+		assertThat(cache.lookup(embeddings.embed("Who wrote the safety manual?"), List.of("a", "b"))).isNull();
+		// Same question, but retrieval now finds other chunks
+		assertThat(cache.lookup(embeddings.embed("What is the torque for the flange bolts?"), List.of("a", "c"))).isNull();
+
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getMisses()).isEqualTo(2);
+		assertThat(cache.getStaleContextMisses()).isEqualTo(1);
+	}
+
+	@Test
+	void lessSimilarQuestionWithSameContextStillHits() {
+		cache.put("What is the torque for the flange bolts?", embeddings.embed("What is the torque for the flange bolts?"),
+				List.of("a", "c"), "40 Nm, old manual");
+		cache.put("What is the torque for the flange bolts again?",
+				embeddings.embed("What is the torque for the flange bolts again?"), List.of("a", "b"), "45 Nm");
+
+		// The closest entry was answered from other chunks; the next closest matches
+		assertThat(cache.lookup(embeddings.embed("What is the torque for the flange bolts?"), List.of("a", "b")))
+			.isEqualTo("45 Nm");
+		assertThat(cache.getStaleContextMisses()).isZero();
+	}
+
+	@Test
+	void entriesExpireAndAreDroppedOnIndexing() {
+		float[] question = embeddings.embed("How often are filters replaced?");
+		cache.put("How often are filters replaced?", question, List.of("a"), "Monthly");
+		now.set(61 * 60_000);
+		assertThat(cache.lookup(question, List.of("a"))).isNull();
+
+		cache.put("How often are filters replaced?", question, List.of("a"), "Monthly");
+		cache.invalidateAll();
+		assertThat(cache.size()).isZero();
+	}
+}
@@ -0,0 +1,68 @@
+package com.zentriq.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Deterministic, offline stand-in for llama3.2: answers every prompt with {@code answerWords}
+ * words picked from a hash of the prompt, immediately, and streams them one word per chunk.
+ */
+public class FakeChatModel implements ChatModel {
+
+	private static final String[] WORDS = { "the", "valve", "pressure", "must", "be", "checked", "weekly", "and",
+		"replaced", "when", "worn", "according", "to", "manual", "section", "four" };
+
+	private final int answerWords;
+	private final AtomicInteger calls = new AtomicInteger();
+	private volatile int lastPromptLength;
+
+	public FakeChatModel(int answerWords) {
+		this.answerWords = answerWords;
+	}
+
+	@Override
+	public ChatResponse call(Prompt prompt) {
+		return response(String.join("", tokens(prompt)));
+	}
+
+	@Override
+	public Flux<ChatResponse> stream(Prompt prompt) {
+		return Flux.fromIterable(tokens(prompt)).map(FakeChatModel::response);
+	}
+
+	// Number of prompts received, streamed or not
+	public int getCalls() {
+		return calls.get();
+	}
+
+	// Characters in the most recent prompt
+	public int getLastPromptLength() {
+		return lastPromptLength;
+	}
+
+	private List<String> tokens(Prompt prompt) {
+		calls.incrementAndGet();
+		String text = prompt.getContents();
+		lastPromptLength = text.length();
+		int hash = text.hashCode();
+		List<String> tokens = new ArrayList<>(answerWords);
+		for (int i = 0; i < answerWords; i++) {
+			hash = hash * 31 + i;
+			tokens.add((i == 0 ? "" : " ") + WORDS[Math.floorMod(hash, WORDS.length)]);
+		}
+		return tokens;
+	}
+
+	private static ChatResponse response(String text) {
+		return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+	}
+}
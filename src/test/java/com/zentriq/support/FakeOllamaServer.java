@@ -0,0 +1,360 @@
+package com.zentriq.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Offline stand-in for an Ollama server, speaking enough of its HTTP API for Spring AI's
+ * {@code OllamaChatModel} and {@code OllamaEmbeddingModel}: {@code /api/chat} and
+ * {@code /api/generate} (streamed as NDJSON or in one piece) and {@code /api/embed}.
+ *
+ * Answers are words picked from a hash of the prompt and embeddings come from
+ * {@link HashingEmbeddingModel}, so the same input always gets the same output. Timing is modelled
+ * on a local GPU: at most {@code parallel} generations run at once (Ollama's OLLAMA_NUM_PARALLEL),
+ * later ones queue; each waits a sampled time to first token and then emits {@code tokensPerSecond}.
+ */
+public class FakeOllamaServer implements AutoCloseable {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private static final String[] WORDS = { "the", "valve", "pressure", "must", "be", "checked", "weekly", "and",
+		"replaced", "when", "worn", "according", "to", "manual", "section", "four" };
+
+	/**
+	 * A latency distribution in milliseconds.
+	 */
+	@FunctionalInterface
+	public interface Latency {
+
+		long sampleMillis(Random random);
+
+		static Latency fixed(long millis) {
+			return random -> millis;
+		}
+
+		static Latency uniform(long minMillis, long maxMillis) {
+			return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+		}
+
+		// Long-tailed, like real model latencies: half the samples are below the median
+		static Latency logNormal(long medianMillis, double sigma) {
+			return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Latency firstTokenLatency;
+	private final double tokensPerSecond;
+	private final int answerWords;
+	private final Latency embedLatency;
+	private final HashingEmbeddingModel embeddings;
+	private final Semaphore slots;
+	private final Random random;
+
+	private final AtomicInteger chatCalls = new AtomicInteger();
+	private final AtomicInteger generateCalls = new AtomicInteger();
+	private final AtomicInteger embedCalls = new AtomicInteger();
+	private final AtomicInteger embeddedTexts = new AtomicInteger();
+
+	private FakeOllamaServer(Builder builder) throws IOException {
+		this.firstTokenLatency = builder.firstTokenLatency;
+		this.tokensPerSecond = builder.tokensPerSecond;
+		this.answerWords = builder.answerWords;
+		this.embedLatency = builder.embedLatency;
+		this.embeddings = new HashingEmbeddingModel(builder.dimensions);
+		this.slots = new Semaphore(builder.parallel, true);
+		this.random = new Random(builder.seed);
+		this.executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "fake-ollama");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", builder.port), 64);
+		server.setExecutor(executor);
+		server.createContext("/api/chat", exchange -> handle(exchange, this::chat));
+		server.createContext("/api/generate", exchange -> handle(exchange, this::generate));
+		server.createContext("/api/embed", exchange -> handle(exchange, this::embed));
+		server.start();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	// For spring.ai.ollama.base-url
+	public String getBaseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	public int getChatCalls() {
+		return chatCalls.get();
+	}
+
+	public int getGenerateCalls() {
+		return generateCalls.get();
+	}
+
+	public int getEmbedCalls() {
+		return embedCalls.get();
+	}
+
+	// Number of individual texts embedded across all /api/embed requests
+	public int getEmbeddedTexts() {
+		return embeddedTexts.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private interface Handler {
+		void handle(JsonNode request, HttpExchange exchange) throws IOException, InterruptedException;
+	}
+
+	private void handle(HttpExchange exchange, Handler handler) throws IOException {
+		try (exchange) {
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			JsonNode request;
+			try (InputStream body = exchange.getRequestBody()) {
+				request = JSON.readTree(body);
+			}
+			handler.handle(request, exchange);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void chat(JsonNode request, HttpExchange exchange) throws IOException, InterruptedException {
+		chatCalls.incrementAndGet();
+		StringBuilder prompt = new StringBuilder();
+		request.path("messages").forEach(message -> prompt.append(message.path("content").asText()).append('\n'));
+		generate(request, prompt.toString(), exchange, (chunk, token) -> chunk.putObject("message")
+				.put("role", "assistant")
+				.put("content", token));
+	}
+
+	private void generate(JsonNode request, HttpExchange exchange) throws IOException, InterruptedException {
+		generateCalls.incrementAndGet();
+		generate(request, request.path("prompt").asText(), exchange, (chunk, token) -> chunk.put("response", token));
+	}
+
+	// Shared by /api/chat and /api/generate, which differ only in where the text goes
+	private void generate(JsonNode request, String prompt, HttpExchange exchange,
+			BiConsumer<ObjectNode, String> content) throws IOException, InterruptedException {
+		String model = request.path("model").asText();
+		boolean stream = request.path("stream").asBoolean(true); // Ollama streams unless told not to
+		List<String> tokens = answer(prompt);
+		long tokenMillis = Math.round(1000 / tokensPerSecond);
+		long start = System.nanoTime();
+
+		slots.acquire();
+		try {
+			Thread.sleep(sample(firstTokenLatency));
+			long promptNanos = System.nanoTime() - start;
+			exchange.getResponseHeaders().set("Content-Type", stream ? "application/x-ndjson" : "application/json");
+			exchange.sendResponseHeaders(200, 0);
+			OutputStream out = exchange.getResponseBody();
+			if (stream) {
+				for (int i = 0; i < tokens.size(); i++) {
+					if (i > 0) {
+						Thread.sleep(tokenMillis);
+					}
+					ObjectNode chunk = chunk(model, false);
+					content.accept(chunk, tokens.get(i));
+					writeLine(out, chunk);
+				}
+				ObjectNode done = chunk(model, true);
+				content.accept(done, "");
+				writeLine(out, stats(done, prompt, tokens.size(), start, promptNanos));
+			} else {
+				Thread.sleep(tokenMillis * Math.max(0, tokens.size() - 1));
+				ObjectNode done = chunk(model, true);
+				content.accept(done, String.join("", tokens));
+				writeLine(out, stats(done, prompt, tokens.size(), start, promptNanos));
+			}
+		} finally {
+			slots.release();
+		}
+	}
+
+	private void embed(JsonNode request, HttpExchange exchange) throws IOException, InterruptedException {
+		embedCalls.incrementAndGet();
+		List<String> inputs = new ArrayList<>();
+		JsonNode input = request.path("input");
+		if (input.isArray()) {
+			input.forEach(text -> inputs.add(text.asText()));
+		} else {
+			inputs.add(input.asText());
+		}
+		embeddedTexts.addAndGet(inputs.size());
+		long start = System.nanoTime();
+
+		ObjectNode response = JSON.createObjectNode().put("model", request.path("model").asText());
+		ArrayNode vectors = response.putArray("embeddings");
+		int promptTokens = 0;
+		for (String text : inputs) {
+			ArrayNode vector = vectors.addArray();
+			for (float value : normalize(embeddings.embed(text))) {
+				vector.add(value);
+			}
+			promptTokens += text.length() / 4 + 1;
+		}
+		slots.acquire();
+		try {
+			Thread.sleep(sample(embedLatency));
+		} finally {
+			slots.release();
+		}
+		response.put("total_duration", System.nanoTime() - start)
+			.put("load_duration", 0)
+			.put("prompt_eval_count", promptTokens);
+		byte[] body = JSON.writeValueAsBytes(response);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, body.length);
+		exchange.getResponseBody().write(body);
+	}
+
+	private List<String> answer(String prompt) {
+		int hash = prompt.hashCode();
+		List<String> tokens = new ArrayList<>(answerWords);
+		for (int i = 0; i < answerWords; i++) {
+			hash = hash * 31 + i;
+			tokens.add((i == 0 ? "" : " ") + WORDS[Math.floorMod(hash, WORDS.length)]);
+		}
+		return tokens;
+	}
+
+	private long sample(Latency latency) {
+		synchronized (random) {
+			return Math.max(0, latency.sampleMillis(random));
+		}
+	}
+
+	private static ObjectNode chunk(String model, boolean done) {
+		ObjectNode chunk = JSON.createObjectNode()
+			.put("model", model)
+			.put("created_at", Instant.now().toString())
+			.put("done", done);
+		if (done) {
+			chunk.put("done_reason", "stop");
+		}
+		return chunk;
+	}
+
+	private static ObjectNode stats(ObjectNode done, String prompt, int evalCount, long start, long promptNanos) {
+		long total = System.nanoTime() - start;
+		return done.put("total_duration", total)
+			.put("load_duration", 0)
+			.put("prompt_eval_count", prompt.length() / 4 + 1)
+			.put("prompt_eval_duration", promptNanos)
+			.put("eval_count", evalCount)
+			.put("eval_duration", total - promptNanos);
+	}
+
+	private static void writeLine(OutputStream out, JsonNode json) throws IOException {
+		out.write(JSON.writeValueAsBytes(json));
+		out.write('\n');
+		out.flush();
+	}
+
+	// Ollama returns unit-length embeddings
+	private static float[] normalize(float[] vector) {
+		double norm = 0;
+		for (float value : vector) {
+			norm += value * value;
+		}
+		float scale = (float) (1 / Math.sqrt(norm));
+		for (int i = 0; i < vector.length; i++) {
+			vector[i] *= scale;
+		}
+		return vector;
+	}
+
+	public static final class Builder {
+
+		private int port;
+		private Latency firstTokenLatency = Latency.fixed(0);
+		private double tokensPerSecond = 1000;
+		private int answerWords = 20;
+		private Latency embedLatency = Latency.fixed(0);
+		private int dimensions = 768;
+		private int parallel = 4;
+		private long seed = 42;
+
+		private Builder() {
+		}
+
+		// 0 (the default) picks a free port
+		public Builder port(int port) {
+			this.port = port;
+			return this;
+		}
+
+		// Prompt evaluation: time from the request to the first token
+		public Builder firstTokenLatency(Latency latency) {
+			this.firstTokenLatency = latency;
+			return this;
+		}
+
+		public Builder tokensPerSecond(double tokensPerSecond) {
+			this.tokensPerSecond = tokensPerSecond;
+			return this;
+		}
+
+		public Builder answerWords(int answerWords) {
+			this.answerWords = answerWords;
+			return this;
+		}
+
+		// Per /api/embed request, whatever the number of inputs
+		public Builder embedLatency(Latency latency) {
+			this.embedLatency = latency;
+			return this;
+		}
+
+		public Builder dimensions(int dimensions) {
+			this.dimensions = dimensions;
+			return this;
+		}
+
+		// Requests processed at once; the rest wait their turn
+		public Builder parallel(int parallel) {
+			this.parallel = parallel;
+			return this;
+		}
+
+		// Seed for the latency samples
+		public Builder seed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		public FakeOllamaServer start() throws IOException {
+			return new FakeOllamaServer(this);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.zentriq.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * Deterministic, offline stand-in for nomic-embed-text: each word is hashed into one of
+ * {@code dimensions} buckets, so texts sharing words get similar vectors.
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+	private final int dimensions;
+	private final AtomicInteger calls = new AtomicInteger();
+	private final AtomicInteger embeddedTexts = new AtomicInteger();
+
+	public HashingEmbeddingModel(int dimensions) {
+		this.dimensions = dimensions;
+	}
+
+	@Override
+	public EmbeddingResponse call(EmbeddingRequest request) {
+		calls.incrementAndGet();
+		List<Embedding> embeddings = new ArrayList<>();
+		List<String> inputs = request.getInstructions();
+		for (int i = 0; i < inputs.size(); i++) {
+			embeddings.add(new Embedding(embed(inputs.get(i)), i));
+		}
+		embeddedTexts.addAndGet(inputs.size());
+		return new EmbeddingResponse(embeddings);
+	}
+
+	@Override
+	public float[] embed(String text) {
+		float[] vector = new float[dimensions];
+		for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			if (!word.isEmpty()) {
+				int hash = word.hashCode() * 0x9E3779B9;
+				vector[Math.floorMod(hash, dimensions)] += 1f;
+				// A second, signed bucket keeps unrelated words from colliding too often
+				vector[Math.floorMod(hash >>> 7, dimensions)] += (hash & 1) == 0 ? 0.5f : -0.5f;
+			}
+		}
+		vector[0] += 1e-3f; // never a zero vector
+		return vector;
+	}
+
+	@Override
+	public float[] embed(Document document) {
+		return embed(document.getText());
+	}
+
+	@Override
+	public int dimensions() {
+		return dimensions;
+	}
+
+	// Number of embedding requests received
+	public int getCalls() {
+		return calls.get();
+	}
+
+	// Number of individual texts embedded across all requests
+	public int getEmbeddedTexts() {
+		return embeddedTexts.get();
+	}
+}
@@ -0,0 +1,82 @@
+package com.zentriq.ui;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import javafx.collections.ListChangeListener;
+
+class ChatHistoryTests {
+
+	@Test
+	void olderMessagesAreReadBackFromDisk() {
+		ChatHistory history = new ChatHistory(4);
+		List<ChatMessage> added = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			ChatMessage message = i % 2 == 0 ? ChatMessage.user("question " + i, 2)
+					: ChatMessage.assistant("answer " + i + " ✓").withStats(3, i);
+			history.add(message);
+			added.add(message);
+		}
+
+		assertThat(history).hasSize(1000).containsExactlyElementsOf(added);
+		assertThat(history.isInMemory(995)).isFalse();
+		assertThat(history.isInMemory(996)).isTrue();
+		assertThatThrownBy(() -> history.get(1000)).isInstanceOf(IndexOutOfBoundsException.class);
+	}
+
+	@Test
+	void spilledMessagesCanStillBeReplaced() {
+		ChatHistory history = new ChatHistory(4);
+		ChatMessage question = ChatMessage.user("question", 2);
+		ChatMessage placeholder = ChatMessage.assistant("");
+		history.add(question);
+		history.add(placeholder);
+		for (int i = 0; i < 10; i++) {
+			history.add(ChatMessage.user("next " + i, 2));
+		}
+		assertThat(history.isInMemory(1)).isFalse();
+		assertThat(history.get(1)).isEqualTo(placeholder);
+
+		// An answer that finished after its row was spilled, longer than the placeholder it replaces
+		ChatMessage answer = placeholder.withText("a late answer ✓").withStats(4, 900);
+		assertThat(history.set(1, answer)).isEqualTo(placeholder);
+		assertThat(history.get(1)).isEqualTo(answer);
+		assertThat(history.get(0)).isEqualTo(question);
+		assertThat(history.get(2).text()).isEqualTo("next 0");
+
+		// Spilling more afterwards keeps every row where it was, also when read back from disk
+		for (int i = 10; i < 300; i++) {
+			history.add(ChatMessage.user("next " + i, 2));
+		}
+		for (int i = 2; i < 296; i++) {
+			assertThat(history.get(i).text()).isEqualTo("next " + (i - 2));
+		}
+		assertThat(history.get(1)).isEqualTo(answer);
+		assertThat(history.get(0)).isEqualTo(question);
+		assertThat(history.get(250).text()).isEqualTo("next 248");
+	}
+
+	@Test
+	void updatesAndClearAreObservable() {
+		ChatHistory history = new ChatHistory(8);
+		List<String> changes = new ArrayList<>();
+		history.addListener((ListChangeListener<ChatMessage>) change -> {
+			while (change.next()) {
+				changes.add(change.wasReplaced() ? "set" : change.wasAdded() ? "add" : "remove");
+			}
+		});
+
+		ChatMessage placeholder = ChatMessage.assistant("");
+		history.add(placeholder);
+		history.set(0, placeholder.withText("streamed"));
+		history.clear();
+
+		assertThat(changes).containsExactly("add", "set", "remove");
+		assertThat(history).isEmpty();
+	}
+}
@@ -0,0 +1,38 @@
+package com.zentriq.ui;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ChatMessageCellTests {
+
+	@Test
+	void heightCacheHoldsOneEntryPerRow() {
+		ChatMessageCell.HeightCache cache = new ChatMessageCell.HeightCache(100);
+		AtomicInteger layouts = new AtomicInteger();
+
+		// Every update of a row replaces its entry instead of adding one
+		ChatMessage answer = ChatMessage.assistant("");
+		for (int i = 0; i < 500; i++) {
+			answer = answer.withText(answer.text() + "token ");
+			cache.get(1, answer, 400, () -> layouts.incrementAndGet());
+		}
+		assertThat(cache.size()).isEqualTo(1);
+		assertThat(layouts.get()).isEqualTo(500);
+
+		// Unchanged row and width: no layout; new width or stats: laid out again
+		cache.get(1, answer, 400, () -> layouts.incrementAndGet());
+		assertThat(layouts.get()).isEqualTo(500);
+		cache.get(1, answer, 300, () -> layouts.incrementAndGet());
+		cache.get(1, answer.withStats(500, 1200), 300, () -> layouts.incrementAndGet());
+		assertThat(layouts.get()).isEqualTo(502);
+
+		// Bounded in rows
+		for (int row = 0; row < 1000; row++) {
+			cache.get(row, ChatMessage.user("question " + row, 2), 400, () -> 20);
+		}
+		assertThat(cache.size()).isEqualTo(100);
+	}
+}
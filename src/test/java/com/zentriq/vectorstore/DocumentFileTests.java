@@ -0,0 +1,70 @@
+package com.zentriq.vectorstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class DocumentFileTests {
+
+	@TempDir
+	Path dir;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private record Replayed(List<String> events, List<DocumentFile.Location> locations) {
+	}
+
+	@Test
+	void replaysHeadersAndDropsATornLastRecord() throws Exception {
+		Path file = dir.resolve("documents.jsonl");
+		try (DocumentFile documents = new DocumentFile(file, objectMapper)) {
+			documents.appendDocument("a", "first line\nsecond line", Map.of("filename", "manual.pdf"));
+			documents.appendDocument("b", "", Map.of());
+			documents.appendTombstone("a");
+			documents.appendDocument("c", "Überdruck 42 bar", Map.of());
+		}
+		// Crash halfway through the text of the last record
+		Files.write(file, Arrays.copyOf(Files.readAllBytes(file), (int) Files.size(file) - 5));
+
+		try (DocumentFile documents = new DocumentFile(file, objectMapper)) {
+			Replayed replayed = replay(documents);
+			assertThat(replayed.events()).containsExactly("a {filename=manual.pdf}", "b {}", "-a");
+			assertThat(documents.readText(replayed.locations().get(0))).isEqualTo("first line\nsecond line");
+			assertThat(documents.readText(replayed.locations().get(1))).isEmpty();
+
+			// The torn record is overwritten by the next one
+			DocumentFile.Location location = documents.appendDocument("c", "Überdruck 42 bar", Map.of());
+			assertThat(documents.readText(location)).isEqualTo("Überdruck 42 bar");
+		}
+		try (DocumentFile documents = new DocumentFile(file, objectMapper)) {
+			assertThat(replay(documents).events()).containsExactly("a {filename=manual.pdf}", "b {}", "-a", "c {}");
+		}
+	}
+
+	private static Replayed replay(DocumentFile documents) throws Exception {
+		Replayed replayed = new Replayed(new ArrayList<>(), new ArrayList<>());
+		documents.replay(new DocumentFile.Visitor() {
+			@Override
+			public void document(String id, Map<String, Object> metadata, DocumentFile.Location location) {
+				replayed.events().add(id + " " + metadata);
+				replayed.locations().add(location);
+			}
+
+			@Override
+			public void deleted(String id) {
+				replayed.events().add("-" + id);
+			}
+		});
+		return replayed;
+	}
+}
@@ -0,0 +1,84 @@
+package com.zentriq.vectorstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExactVectorIndexTests {
+
+	private static final int DIMENSIONS = 8;
+	private static final int TOP_K = 10;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void parallelSegmentScanMatchesSequentialScan() throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		// Three and a half segments, so splits and a partial last segment are exercised
+		int rows = ExactVectorIndex.SEGMENT_ROWS * 7 / 2;
+		try (VectorFile vectors = new VectorFile(dir.resolve("vectors.bin"))) {
+			Random random = new Random(5);
+			for (int i = 0; i < rows; i++) {
+				vectors.append(randomUnitVector(random));
+			}
+			ExactVectorIndex sequential = new ExactVectorIndex(vectors);
+			ExactVectorIndex parallel = new ExactVectorIndex(vectors, pool);
+
+			for (int q = 0; q < 5; q++) {
+				float[] query = randomUnitVector(random);
+				List<ScoredRow> expected = bruteForce(vectors, query, IntStream.range(0, rows).filter(row -> row % 3 != 0));
+				assertThat(sequential.search(query, TOP_K, -1f, row -> row % 3 != 0)).isEqualTo(expected);
+				assertThat(parallel.search(query, TOP_K, -1f, row -> row % 3 != 0)).isEqualTo(expected);
+			}
+
+			// Over a row list (a partition) and with a threshold that leaves fewer than topK
+			int[] partition = IntStream.range(0, rows).filter(row -> row % 7 == 0).toArray();
+			float[] query = randomUnitVector(random);
+			List<ScoredRow> expected = bruteForce(vectors, query, IntStream.of(partition)).stream()
+				.filter(hit -> hit.score() >= 0.9f)
+				.toList();
+			assertThat(parallel.search(query, TOP_K, 0.9f, row -> true, partition)).isEqualTo(expected);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void topKKeepsTheBestScores() {
+		TopK best = new TopK(3);
+		float[] scores = { 0.1f, 0.9f, 0.5f, 0.3f, 0.95f, 0.2f, 0.7f };
+		for (int row = 0; row < scores.length; row++) {
+			best.offer(row, scores[row]);
+		}
+		assertThat(best.toList()).containsExactly(new ScoredRow(4, 0.95f), new ScoredRow(1, 0.9f), new ScoredRow(6, 0.7f));
+
+		TopK other = new TopK(3);
+		other.offer(10, 0.92f);
+		best.addAll(other);
+		assertThat(best.toList()).extracting(ScoredRow::row).containsExactly(4, 10, 1);
+	}
+
+	private static List<ScoredRow> bruteForce(VectorFile vectors, float[] query, IntStream rows) {
+		return rows.mapToObj(row -> new ScoredRow(row, MappedVectorStore.dot(query, vectors.read(row))))
+			.sorted(Comparator.comparingDouble(ScoredRow::score).reversed())
+			.limit(TOP_K)
+			.toList();
+	}
+
+	private static float[] randomUnitVector(Random random) {
+		float[] vector = new float[DIMENSIONS];
+		for (int i = 0; i < DIMENSIONS; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		return MappedVectorStore.normalize(vector);
+	}
+}
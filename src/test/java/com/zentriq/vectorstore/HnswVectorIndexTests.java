@@ -0,0 +1,111 @@
+package com.zentriq.vectorstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HnswVectorIndexTests {
+
+	private static final int DIMENSIONS = 32;
+	private static final int ROWS = 3000;
+	private static final int TOP_K = 10;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void recallMatchesExactScanClosely() throws Exception {
+		try (VectorFile vectors = new VectorFile(dir.resolve("vectors.bin"))) {
+			Random random = new Random(7);
+			HnswVectorIndex hnsw = new HnswVectorIndex(vectors, dir.resolve("hnsw.graph"), 16, 200, 64);
+			for (int i = 0; i < ROWS; i++) {
+				float[] vector = randomUnitVector(random);
+				hnsw.add(vectors.append(vector), vector);
+			}
+			ExactVectorIndex exact = new ExactVectorIndex(vectors);
+
+			double recall = recall(hnsw, exact, random);
+			assertThat(recall).isGreaterThan(0.9);
+
+			// A saved graph reloads to the same answers
+			hnsw.save();
+			HnswVectorIndex reloaded = new HnswVectorIndex(vectors, dir.resolve("hnsw.graph"), 16, 200, 64);
+			assertThat(reloaded.load()).isTrue();
+			float[] query = randomUnitVector(new Random(99));
+			assertThat(reloaded.search(query, TOP_K, -1f, row -> true))
+				.isEqualTo(hnsw.search(query, TOP_K, -1f, row -> true));
+		}
+	}
+
+	@Test
+	void findsTopKWhenMostRowsAreDeleted() throws Exception {
+		try (VectorFile vectors = new VectorFile(dir.resolve("vectors.bin"))) {
+			Random random = new Random(11);
+			HnswVectorIndex hnsw = new HnswVectorIndex(vectors, dir.resolve("hnsw.graph"), 16, 200, 64);
+			for (int i = 0; i < ROWS; i++) {
+				float[] vector = randomUnitVector(random);
+				hnsw.add(vectors.append(vector), vector);
+			}
+			// Every row but one in twenty is gone, as after re-indexing the same files many times
+			IntPredicate live = row -> row % 20 == 0;
+			for (int row = 0; row < ROWS; row++) {
+				if (!live.test(row)) {
+					hnsw.remove(row);
+				}
+			}
+			ExactVectorIndex exact = new ExactVectorIndex(vectors);
+
+			int found = 0;
+			for (int q = 0; q < 50; q++) {
+				float[] query = randomUnitVector(random);
+				List<ScoredRow> hits = hnsw.search(query, TOP_K, -1f, live);
+				assertThat(hits).hasSize(TOP_K).allMatch(hit -> live.test(hit.row()));
+				List<ScoredRow> truth = exact.search(query, TOP_K, -1f, live);
+				found += (int) hits.stream().filter(truth::contains).count();
+			}
+			assertThat(found / (50.0 * TOP_K)).isGreaterThan(0.9);
+		}
+	}
+
+	@Test
+	void rejectsDegenerateParameters() throws Exception {
+		try (VectorFile vectors = new VectorFile(dir.resolve("vectors.bin"))) {
+			Path graph = dir.resolve("hnsw.graph");
+			assertThatThrownBy(() -> new HnswVectorIndex(vectors, graph, 1, 200, 64))
+				.isInstanceOf(IllegalArgumentException.class).hasMessageContaining("m must be at least 2");
+			assertThatThrownBy(() -> new HnswVectorIndex(vectors, graph, 16, 0, 64))
+				.isInstanceOf(IllegalArgumentException.class);
+			assertThatThrownBy(() -> new HnswVectorIndex(vectors, graph, 16, 200, 0))
+				.isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+	private static double recall(VectorIndex approximate, VectorIndex exact, Random random) {
+		int found = 0;
+		int queries = 100;
+		for (int q = 0; q < queries; q++) {
+			float[] query = randomUnitVector(random);
+			List<Integer> truth = exact.search(query, TOP_K, -1f, row -> true).stream().map(ScoredRow::row).toList();
+			found += (int) approximate.search(query, TOP_K, -1f, row -> true)
+				.stream()
+				.filter(hit -> truth.contains(hit.row()))
+				.count();
+		}
+		return found / (double) (queries * TOP_K);
+	}
+
+	private static float[] randomUnitVector(Random random) {
+		float[] vector = new float[DIMENSIONS];
+		for (int i = 0; i < DIMENSIONS; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		return MappedVectorStore.normalize(vector);
+	}
+}
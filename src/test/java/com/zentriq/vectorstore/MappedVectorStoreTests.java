@@ -0,0 +1,145 @@
+package com.zentriq.vectorstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import com.zentriq.support.HashingEmbeddingModel;
+
+class MappedVectorStoreTests {
+
+	@TempDir
+	Path indexDir;
+
+	private final HashingEmbeddingModel embeddingModel = new HashingEmbeddingModel(64);
+
+	@Test
+	void reopensWithoutReembedding() throws Exception {
+		try (MappedVectorStore store = MappedVectorStore.builder(embeddingModel).directory(indexDir).build()) {
+			store.add(List.of(
+					new Document("a", "the pump pressure must stay below four bar", Map.of("filename", "manual.pdf")),
+					new Document("b", "invoices are due within thirty days", Map.of("filename", "terms.txt"))));
+		}
+		int embeddedBeforeReopen = embeddingModel.getEmbeddedTexts();
+
+		try (MappedVectorStore reopened = MappedVectorStore.builder(embeddingModel).directory(indexDir).build()) {
+			assertThat(reopened.size()).isEqualTo(2);
+			assertThat(embeddingModel.getEmbeddedTexts()).isEqualTo(embeddedBeforeReopen);
+
+			List<Document> hits = reopened.similaritySearch(
+					SearchRequest.builder().query("what pressure for the pump").topK(1).build());
+			assertThat(hits).extracting(Document::getId).containsExactly("a");
+			assertThat(hits.get(0).getText()).isEqualTo("the pump pressure must stay below four bar");
+			assertThat(hits.get(0).getMetadata()).containsEntry("filename", "manual.pdf");
+		}
+	}
+
+	@Test
+	void deletesSurviveReopen() throws Exception {
+		try (MappedVectorStore store = MappedVectorStore.builder(embeddingModel).directory(indexDir).build()) {
+			store.add(List.of(new Document("a", "pump pressure", Map.of()), new Document("b", "pump speed", Map.of())));
+			store.delete(List.of("a"));
+		}
+		try (MappedVectorStore reopened = MappedVectorStore.builder(embeddingModel).directory(indexDir).build()) {
+			List<Document> hits = reopened.similaritySearch(SearchRequest.builder().query("pump pressure").topK(5).build());
+			assertThat(hits).extracting(Document::getId).containsExactly("b");
+		}
+	}
+
+	@Test
+	void failedAddLeavesRowsAligned() throws Exception {
+		try (MappedVectorStore store = MappedVectorStore.builder(embeddingModel).directory(indexDir).hnsw(8, 32, 32).build()) {
+			store.add(List.of(new Document("a", "pump pressure", Map.of())));
+			// Metadata that cannot be written fails the add after the vector was appended
+			assertThatThrownBy(() -> store.add(List.of(new Document("bad", "pump noise", Map.of("owner", new Object())))))
+				.isInstanceOf(UncheckedIOException.class);
+			store.add(List.of(new Document("b", "oil level", Map.of()), new Document("a", "pump speed", Map.of())));
+
+			assertThat(store.size()).isEqualTo(2);
+			List<Document> hits = store.similaritySearch(SearchRequest.builder().query("oil level").topK(1).build());
+			assertThat(hits).extracting(Document::getText).containsExactly("oil level");
+		}
+		try (MappedVectorStore reopened = MappedVectorStore.builder(embeddingModel).directory(indexDir).build()) {
+			List<Document> hits = reopened.similaritySearch(SearchRequest.builder().query("pump speed").topK(5).build());
+			assertThat(hits).extracting(Document::getId).containsExactlyInAnyOrder("a", "b");
+			assertThat(reopened.getDocuments(List.of("a"))).extracting(Document::getText).containsExactly("pump speed");
+		}
+	}
+
+	@Test
+	void quantizedCodesAreRebuiltOnReopen() throws Exception {
+		try (MappedVectorStore store = MappedVectorStore.builder(embeddingModel).directory(indexDir).binary(4).build()) {
+			store.add(List.of(
+					new Document("a", "the pump pressure must stay below four bar", Map.of()),
+					new Document("b", "invoices are due within thirty days", Map.of())));
+		}
+		try (MappedVectorStore reopened = MappedVectorStore.builder(embeddingModel).directory(indexDir).int8(4).build()) {
+			List<Document> hits = reopened.similaritySearch(
+					SearchRequest.builder().query("what pressure for the pump").topK(1).build());
+			assertThat(hits).extracting(Document::getId).containsExactly("a");
+		}
+	}
+
+	@Test
+	void filtersOnPartitionedFieldsAcrossReopen() throws Exception {
+		try (MappedVectorStore store = MappedVectorStore.builder(embeddingModel).directory(indexDir)
+				.partitionBy("filename", "collection").build()) {
+			store.add(List.of(
+					new Document("a", "pump pressure limit", Map.of("filename", "manual.pdf", "collection", "docs")),
+					new Document("b", "pump pressure warranty", Map.of("filename", "terms.txt", "collection", "docs")),
+					new Document("c", "pump pressure log", Map.of("filename", "log.csv", "collection", "data"))));
+			// Moved to another file: the old partition entry must not match any more
+			store.add(List.of(new Document("b", "pump pressure warranty", Map.of("filename", "warranty.txt"))));
+		}
+		try (MappedVectorStore reopened = MappedVectorStore.builder(embeddingModel).directory(indexDir)
+				.partitionBy("filename", "collection").build()) {
+			FilterExpressionBuilder b = new FilterExpressionBuilder();
+			assertThat(search(reopened, b.eq("filename", "manual.pdf").build())).containsExactly("a");
+			assertThat(search(reopened, b.eq("filename", "terms.txt").build())).isEmpty();
+			assertThat(search(reopened, b.eq("collection", "docs").build())).containsExactly("a");
+			assertThat(search(reopened, b.or(b.eq("filename", "warranty.txt"), b.eq("collection", "data")).build()))
+				.containsExactlyInAnyOrder("b", "c");
+			assertThat(search(reopened, b.and(b.in("filename", "manual.pdf", "log.csv"), b.eq("collection", "data")).build()))
+				.containsExactly("c");
+			// Not partitioned: falls back to testing every row
+			assertThat(search(reopened, b.ne("filename", "manual.pdf").build())).containsExactlyInAnyOrder("b", "c");
+			assertThat(reopened.matchingIds(b.eq("collection", "docs").build())).containsExactly("a");
+		}
+	}
+
+	@Test
+	void filtersOnValuesWithQuotes() throws Exception {
+		List<Document> documents = List.of(
+				new Document("a", "pump pressure limit", Map.of("filename", "O'Brien notes.txt")),
+				new Document("b", "pump pressure warranty", Map.of("filename", "terms.txt")));
+		FilterExpressionBuilder b = new FilterExpressionBuilder();
+		Filter.Expression quoted = b.or(b.eq("filename", "O'Brien notes.txt"), b.eq("collection", "O'Brien notes.txt")).build();
+		try (MappedVectorStore store = MappedVectorStore.builder(embeddingModel).directory(indexDir.resolve("plain")).build();
+				MappedVectorStore partitioned = MappedVectorStore.builder(embeddingModel).directory(indexDir.resolve("partitioned"))
+					.partitionBy("filename", "collection").build()) {
+			store.add(documents);
+			partitioned.add(documents);
+			assertThat(search(store, quoted)).containsExactly("a");
+			assertThat(search(partitioned, quoted)).containsExactly("a");
+			assertThat(search(partitioned, b.ne("filename", "O'Brien notes.txt").build())).containsExactly("b");
+		}
+	}
+
+	private static List<String> search(MappedVectorStore store, Filter.Expression filter) {
+		return store.similaritySearch(SearchRequest.builder().query("pump pressure").topK(5).filterExpression(filter).build())
+			.stream()
+			.map(Document::getId)
+			.toList();
+	}
+}
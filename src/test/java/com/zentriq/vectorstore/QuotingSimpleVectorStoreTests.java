@@ -0,0 +1,37 @@
+package com.zentriq.vectorstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import com.zentriq.support.HashingEmbeddingModel;
+
+class QuotingSimpleVectorStoreTests {
+
+	@Test
+	void filtersOnValuesWithQuotes() {
+		QuotingSimpleVectorStore store = new QuotingSimpleVectorStore(new HashingEmbeddingModel(64));
+		store.add(List.of(
+				new Document("a", "pump pressure limit", Map.of("filename", "O'Brien notes.txt")),
+				new Document("b", "pump pressure warranty", Map.of("filename", "terms.txt"))));
+
+		FilterExpressionBuilder b = new FilterExpressionBuilder();
+		assertThat(search(store, b.or(b.eq("filename", "O'Brien notes.txt"), b.eq("collection", "O'Brien notes.txt")).build()))
+			.containsExactly("a");
+		assertThat(search(store, b.in("filename", "terms.txt", "it's.txt").build())).containsExactly("b");
+	}
+
+	private static List<String> search(QuotingSimpleVectorStore store, Filter.Expression filter) {
+		return store.similaritySearch(SearchRequest.builder().query("pump pressure").topK(5).filterExpression(filter).build())
+			.stream()
+			.map(Document::getId)
+			.toList();
+	}
+}
@@ -0,0 +1,54 @@
+package com.zentriq.vectorstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class VectorKernelTests {
+
+	private final VectorKernel scalar = new ScalarVectorKernel();
+
+	@Test
+	void simdMatchesScalarIncludingTails() {
+		// Surefire adds the incubator module; an IDE run without it only exercises the fallback
+		assumeTrue(VectorKernel.get() instanceof SimdVectorKernel, "jdk.incubator.vector not available");
+		VectorKernel simd = VectorKernel.get();
+		Random random = new Random(3);
+		for (int length : new int[] { 1, 7, 8, 15, 17, 64, 383, 768 }) {
+			float[] a = randomVector(random, length);
+			float[] b = randomVector(random, length);
+			byte[] codes = new byte[length + 5];
+			random.nextBytes(codes);
+
+			// Lane-wise sums add in a different order than the scalar loop
+			float tolerance = 1e-4f * length;
+			assertThat(simd.dot(a, b)).isCloseTo(scalar.dot(a, b), within(tolerance));
+			assertThat(simd.dot(a, codes, 5)).isCloseTo(scalar.dot(a, codes, 5), within(tolerance * 128));
+			assertThat(simd.squaredDistance(a, b)).isCloseTo(scalar.squaredDistance(a, b), within(tolerance));
+			assertThat(simd.cosine(a, b)).isCloseTo(scalar.cosine(a, b), within(1e-5f));
+		}
+	}
+
+	@Test
+	void scalarKernels() {
+		float[] a = { 1, 2, 3 };
+		float[] b = { 4, -5, 6 };
+		assertThat(scalar.dot(a, b)).isEqualTo(12f);
+		assertThat(scalar.dot(a, new byte[] { 9, 4, -5, 6 }, 1)).isEqualTo(12f);
+		assertThat(scalar.squaredDistance(a, b)).isEqualTo(9f + 49f + 9f);
+		assertThat(scalar.cosine(a, a)).isCloseTo(1f, within(1e-6f));
+		assertThat(scalar.cosine(a, new float[3])).isZero();
+	}
+
+	private static float[] randomVector(Random random, int length) {
+		float[] vector = new float[length];
+		for (int i = 0; i < length; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		return vector;
+	}
+}